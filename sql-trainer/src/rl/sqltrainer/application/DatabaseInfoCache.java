@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.application;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+
+import rl.sqltrainer.domain.Database;
+import rl.sqltrainer.persistence.AsciiFileHandler;
+
+/**
+ * Cache for schema images and descriptions of databases. Images and
+ * descriptions can be loaded in advance by background threads, so that
+ * switching between databases does not need to access the file system.
+ * Decoded images and their variants, which are scaled for the current scale
+ * factor, are held by soft references and reloaded on demand if the garbage
+ * collector has cleared them. Only the images of the database requested
+ * last are held strongly. All methods are thread-safe.
+ *
+ * @author Ruediger Lunde
+ */
+public class DatabaseInfoCache {
+	private final ExecutorService executor;
+	private final Map<Database, Entry> entries = new HashMap<Database, Entry>();
+	/** Scale factor for schema images. */
+	private float scale = 1;
+	/** Images of the database requested last, protected from collection. */
+	private Image currentImage;
+	private Image currentScaledImage;
+
+	/** Standard constructor. */
+	public DatabaseInfoCache() {
+		int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread result = new Thread(r, "DatabaseInfoLoader-" + ++count);
+				result.setDaemon(true);
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Loads descriptions and scaled schema images of the given databases in
+	 * the background. Loading errors are ignored here; they are reported
+	 * when the information is requested.
+	 */
+	public void preload(List<Database> databases) {
+		for (Database db : databases)
+			submit(getEntry(db), true);
+	}
+
+	/**
+	 * Changes the scale factor for schema images. Scaled variants of all
+	 * images, which have already been loaded, are computed in the
+	 * background.
+	 */
+	public void setScale(float scale) {
+		List<Entry> loaded = new ArrayList<Entry>();
+		synchronized (this) {
+			if (scale == this.scale)
+				return;
+			this.scale = scale;
+			for (Entry entry : entries.values())
+				if (entry.isImageLoaded())
+					loaded.add(entry);
+		}
+		for (Entry entry : loaded)
+			submit(entry, false);
+	}
+
+	public synchronized float getScale() {
+		return scale;
+	}
+
+	/**
+	 * Returns the schema image of the database, scaled by the current scale
+	 * factor, or null if the database has no schema image. If the image is
+	 * being loaded by a background thread, the method waits for it.
+	 */
+	public Image getSchemaImage(Database db) throws IOException {
+		Entry entry = getEntry(db);
+		float s = getScale();
+		Image image = entry.getImage();
+		Image scaled = entry.getScaledImage(s);
+		synchronized (this) {
+			currentImage = image;
+			currentScaledImage = scaled;
+		}
+		return scaled;
+	}
+
+	/**
+	 * Returns the description of the database or null if the database has no
+	 * description. If the description is being loaded by a background
+	 * thread, the method waits for it.
+	 */
+	public String getDescription(Database db) throws IOException {
+		return getEntry(db).getDescription();
+	}
+
+	private synchronized Entry getEntry(Database db) {
+		Entry result = entries.get(db);
+		if (result == null) {
+			result = new Entry(db);
+			entries.put(db, result);
+		}
+		return result;
+	}
+
+	/** Loads the scaled image and possibly the description in the background. */
+	private void submit(final Entry entry, final boolean withDescription) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (withDescription)
+						entry.getDescription();
+					entry.getScaledImage(getScale());
+				} catch (IOException e) {
+					// reported when the information is requested
+				}
+			}
+		});
+	}
+
+	/**
+	 * Scales an image. Reductions by more than half are done in several
+	 * steps to keep the quality of bilinear interpolation.
+	 */
+	private static BufferedImage scale(BufferedImage image, float scale) {
+		int width = Math.max(1, Math.round(image.getWidth() * scale));
+		int height = Math.max(1, Math.round(image.getHeight() * scale));
+		BufferedImage result = image;
+		do {
+			int w = Math.max(width, result.getWidth() / 2);
+			int h = Math.max(height, result.getHeight() / 2);
+			if (scale > 1) {
+				w = width;
+				h = height;
+			}
+			BufferedImage tmp = new BufferedImage(w, h,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = tmp.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+					RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING,
+					RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(result, 0, 0, w, h, null);
+			g.dispose();
+			result = tmp;
+		} while (result.getWidth() != width || result.getHeight() != height);
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// inner classes
+
+	/**
+	 * Information about one database. Loading is synchronized per entry, so
+	 * that requests wait for a load in progress instead of loading again.
+	 */
+	private static class Entry {
+		private final Database db;
+		private boolean descriptionLoaded;
+		private String description;
+		private SoftReference<BufferedImage> image;
+		private SoftReference<BufferedImage> scaledImage;
+		private float imageScale;
+
+		Entry(Database db) {
+			this.db = db;
+		}
+
+		synchronized String getDescription() throws IOException {
+			if (!descriptionLoaded && db.getDescription() != null) {
+				description = new AsciiFileHandler().readFile(db
+						.getDescription());
+				descriptionLoaded = true;
+			}
+			return description;
+		}
+
+		synchronized boolean isImageLoaded() {
+			return image != null && image.get() != null;
+		}
+
+		synchronized BufferedImage getImage() throws IOException {
+			BufferedImage result = image != null ? image.get() : null;
+			if (result == null && db.getSchema() != null) {
+				result = ImageIO.read(db.getSchema());
+				if (result != null)
+					image = new SoftReference<BufferedImage>(result);
+			}
+			return result;
+		}
+
+		synchronized BufferedImage getScaledImage(float scale)
+				throws IOException {
+			BufferedImage result = getImage();
+			if (result != null && scale != 1) {
+				BufferedImage scaled = scaledImage != null ? scaledImage.get()
+						: null;
+				if (scaled == null || imageScale != scale) {
+					scaled = DatabaseInfoCache.scale(result, scale);
+					scaledImage = new SoftReference<BufferedImage>(scaled);
+					imageScale = scale;
+				}
+				result = scaled;
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.application;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import rl.sqltrainer.domain.Database.ComparisonMode;
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.sqltrainer.domain.Feedback;
+import rl.sqltrainer.domain.ResultTable;
+import rl.sqltrainer.domain.SolutionSnapshot;
+import rl.sqltrainer.persistence.DBConnectionHandler;
+import rl.util.exceptions.EncryptionException;
+
+/**
+ * Provides feedbacks for SQL exercises by executing answers and solutions in
+ * parallel. Statements are executed by a bounded pool of worker threads.
+ * The number of workers equals the size of the connection pool, so that each
+ * worker can use its own connection. Answer and solution of an exercise are
+ * executed concurrently, and the exercises of a set are processed at the
+ * same time as far as the workers allow. The feedbacks are computed in the
+ * calling thread in exercise order, so the result does not depend on the
+ * order in which the statements finish. Solution results are taken from
+ * the solution snapshot or the solution result cache if possible. For
+ * databases with large results, answer and solution are compared by a
+ * streaming comparator with bounded memory usage instead.
+ *
+ * @author Ruediger Lunde
+ */
+public class GradingEngine {
+	private final DBConnectionHandler dbAccessor;
+	private final FeedbackStrategy feedbackStrategy;
+	private final SolutionResultCache solutionCache;
+	private volatile SolutionSnapshot solutionSnapshot;
+	private final StreamingResultComparator streamingComparator;
+	private volatile ComparisonMode comparisonMode = ComparisonMode.MEMORY;
+	private ExecutorService executor;
+	/** Number of worker threads of the current executor. */
+	private int executorSize;
+	/** Futures of all statements which have been submitted and not finished. */
+	private final List<Future<?>> activeStatements =
+		Collections.synchronizedList(new ArrayList<Future<?>>());
+
+	/** Standard constructor. */
+	public GradingEngine(DBConnectionHandler dbAccessor,
+			FeedbackStrategy feedbackStrategy, SolutionResultCache solutionCache) {
+		this.dbAccessor = dbAccessor;
+		this.feedbackStrategy = feedbackStrategy;
+		this.solutionCache = solutionCache;
+		streamingComparator = new StreamingResultComparator(dbAccessor);
+	}
+
+	/**
+	 * Sets the mode used to compare answer and solution results. In mode
+	 * {@link ComparisonMode#MEMORY}, complete tables with typed columns are
+	 * compared in memory. The other modes compare string representations
+	 * while streaming the results.
+	 */
+	public void setComparisonMode(ComparisonMode mode) {
+		comparisonMode = mode;
+	}
+
+	/**
+	 * Configures the streaming comparison.
+	 *
+	 * @param runSize
+	 *            Maximal number of rows sorted in memory.
+	 * @param exceptOperator
+	 *            Operator used for database-side comparison, e.g.
+	 *            <code>EXCEPT ALL</code> or <code>EXCEPT</code>.
+	 */
+	public void setStreamingComparisonData(int runSize, String exceptOperator) {
+		streamingComparator.setRunSize(runSize);
+		streamingComparator.setExceptOperator(exceptOperator);
+	}
+
+	/**
+	 * Executes answer and solution of the specified exercise concurrently and
+	 * asks the feedback strategy for a feedback.
+	 */
+	public Feedback provideFeedback(ExerciseSet exSet, int exIdx)
+			throws SQLException, ClassNotFoundException, EncryptionException {
+		PendingStatements statements = submit(exSet, exIdx);
+		try {
+			return provideFeedback(exSet, exIdx, statements);
+		} finally {
+			cancel(statements);
+		}
+	}
+
+	/**
+	 * Provides feedbacks for all specified exercises. The statements of all
+	 * exercises are submitted at once and the results are combined in the
+	 * order of the given indices. If the answer of an exercise cannot be
+	 * executed, the exercise gets a feedback with zero points and the error
+	 * message. Other failures, e.g. of a solution, affect the whole set: The
+	 * remaining statements are cancelled and a runtime exception is thrown,
+	 * which names the exercise.
+	 */
+	public List<Feedback> provideFeedback(ExerciseSet exSet,
+			List<Integer> exIdxs) {
+		List<Feedback> result = new ArrayList<Feedback>();
+		List<PendingStatements> statements = new ArrayList<PendingStatements>();
+		int i = 0;
+		try {
+			for (; i < exIdxs.size(); i++)
+				statements.add(submit(exSet, exIdxs.get(i)));
+			for (i = 0; i < exIdxs.size(); i++) {
+				try {
+					result.add(provideFeedback(exSet, exIdxs.get(i),
+							statements.get(i)));
+				} catch (AnswerException e) {
+					result.add(createErrorFeedback(e));
+				}
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("While generating feedback for exercise "
+					+ exSet.getExercise(exIdxs.get(i)).getID() + " ...", e);
+		} finally {
+			for (PendingStatements ps : statements)
+				cancel(ps);
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the snapshot, which is consulted for solution results before the
+	 * cache and the database server.
+	 *
+	 * @param snapshot
+	 *            Possibly null.
+	 */
+	public void setSolutionSnapshot(SolutionSnapshot snapshot) {
+		solutionSnapshot = snapshot;
+	}
+
+	/**
+	 * Executes the solutions of the specified exercises in parallel and
+	 * returns a snapshot containing the result tables. The results are not
+	 * taken from cache or current snapshot. The snapshot is identified by a
+	 * hash value over the executed solutions (see
+	 * {@link SolutionResultCache#computeSolutionsHash(List)}).
+	 */
+	public SolutionSnapshot createSolutionSnapshot(ExerciseSet exSet,
+			List<Integer> exIdxs) throws SQLException, ClassNotFoundException,
+			EncryptionException {
+		int cacheGen = solutionCache.getGeneration();
+		String dbName = dbAccessor.getConnectionData()[1];
+		List<String> solutions = exSet.getDecryptedSolutions(exIdxs);
+		SolutionSnapshot result = new SolutionSnapshot(SolutionResultCache
+				.computeSolutionsHash(solutions));
+		List<Future<ResultTable>> futures = new ArrayList<Future<ResultTable>>();
+		try {
+			for (String solution : solutions)
+				futures.add(submit(solution, dbName, cacheGen));
+			for (int i = 0; i < futures.size(); i++)
+				result.addEntry(dbName, SolutionResultCache
+						.computeSolutionHash(solutions.get(i)),
+						getResult(futures.get(i)));
+			if (solutionCache.getGeneration() != cacheGen)
+				throw new SQLException("Database changed while executing "
+						+ "the solutions.");
+		} finally {
+			for (Future<ResultTable> f : futures) {
+				f.cancel(false);
+				activeStatements.remove(f);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Executes the solutions of the specified exercises in parallel and adds
+	 * their results to the solution result cache, as far as its limits
+	 * allow. Solutions, whose results are already known, are skipped. Used
+	 * before many exercise sets with the same solutions are graded at the
+	 * same time, which would otherwise execute each solution once per
+	 * concurrently graded set. Nothing is done in streaming comparison
+	 * modes, because they do not use the cache.
+	 */
+	public void precomputeSolutions(ExerciseSet exSet, List<Integer> exIdxs)
+			throws SQLException, ClassNotFoundException, EncryptionException {
+		if (comparisonMode != ComparisonMode.MEMORY)
+			return;
+		int cacheGen = solutionCache.getGeneration();
+		String dbName = dbAccessor.getConnectionData()[1];
+		List<Future<ResultTable>> futures = new ArrayList<Future<ResultTable>>();
+		try {
+			for (String solution : exSet.getDecryptedSolutions(exIdxs))
+				if (getKnownSolutionResult(dbName, solution) == null)
+					futures.add(submit(solution, dbName, cacheGen));
+			for (Future<ResultTable> f : futures)
+				getResult(f);
+		} finally {
+			for (Future<ResultTable> f : futures) {
+				f.cancel(false);
+				activeStatements.remove(f);
+			}
+		}
+	}
+
+	/**
+	 * Cancels all statements which have been submitted but not yet started.
+	 * Statements which are already running are not affected; use
+	 * {@link DBConnectionHandler#cancelStatements()} to abort them.
+	 */
+	public void cancel() {
+		synchronized (activeStatements) {
+			for (Future<?> f : activeStatements)
+				f.cancel(false);
+		}
+	}
+
+	/** Stops the worker threads. */
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Submits answer and solution of an exercise for execution. In streaming
+	 * comparison modes, one task executes both statements and compares the
+	 * results.
+	 */
+	private PendingStatements submit(ExerciseSet exSet, int exIdx)
+			throws EncryptionException {
+		final String answer = exSet.getExercise(exIdx).getAnswer();
+		final String solution = exSet.getDecryptedSolution(exIdx);
+		PendingStatements result = new PendingStatements();
+		final ComparisonMode mode = comparisonMode;
+		if (mode != ComparisonMode.MEMORY) {
+			result.comparison = getExecutor().submit(
+					new Callable<ResultComparison>() {
+						@Override
+						public ResultComparison call() throws Exception {
+							return streamingComparator.compare(answer,
+									solution, mode);
+						}
+					});
+			activeStatements.add(result.comparison);
+			return result;
+		}
+		result.answer = submit(answer, null, 0);
+		int cacheGen = solutionCache.getGeneration();
+		String dbName = dbAccessor.getConnectionData()[1];
+		ResultTable known = getKnownSolutionResult(dbName, solution);
+		if (known != null)
+			result.solution = createFinishedFuture(known);
+		else
+			result.solution = submit(solution, dbName, cacheGen);
+		return result;
+	}
+
+	/**
+	 * Returns the result of the solution from snapshot or cache, or null if
+	 * it is not known.
+	 */
+	private ResultTable getKnownSolutionResult(String dbName, String solution) {
+		ResultTable result = null;
+		SolutionSnapshot snapshot = solutionSnapshot;
+		if (snapshot != null)
+			result = snapshot.getTable(dbName,
+					SolutionResultCache.computeSolutionHash(solution));
+		if (result == null)
+			result = solutionCache.get(dbName, solution);
+		return result;
+	}
+
+	/** Returns a future, which has already been completed with the table. */
+	private Future<ResultTable> createFinishedFuture(final ResultTable table) {
+		FutureTask<ResultTable> result = new FutureTask<ResultTable>(
+				new Callable<ResultTable>() {
+					@Override
+					public ResultTable call() {
+						return table;
+					}
+				});
+		result.run();
+		return result;
+	}
+
+	/**
+	 * Submits a statement for execution by one of the workers.
+	 *
+	 * @param cacheDBName
+	 *            If not null, the result is added to the solution result
+	 *            cache under the given database name.
+	 * @param cacheGen
+	 *            Generation of the solution result cache, which was read
+	 *            before the database name. If the cache has been cleared
+	 *            since then, the database may have changed and the result
+	 *            is not cached.
+	 */
+	private Future<ResultTable> submit(final String statement,
+			final String cacheDBName, final int cacheGen) {
+		Future<ResultTable> result = getExecutor().submit(
+				new Callable<ResultTable>() {
+					@Override
+					public ResultTable call() throws Exception {
+						ResultTable result = dbAccessor.executeQuery(statement);
+						if (cacheDBName != null)
+							solutionCache.put(cacheDBName, statement, result,
+									cacheGen);
+						return result;
+					}
+				});
+		activeStatements.add(result);
+		return result;
+	}
+
+	/**
+	 * Waits for answer and solution results and computes the feedback.
+	 * Failures of the answer are reported by an {@link AnswerException}.
+	 */
+	private Feedback provideFeedback(ExerciseSet exSet, int exIdx,
+			PendingStatements statements) throws SQLException,
+			ClassNotFoundException {
+		if (statements.comparison != null)
+			return feedbackStrategy.provideFeedback(exSet, exIdx,
+					getResult(statements.comparison));
+		ResultTable sTable = getResult(statements.solution);
+		ResultTable aTable;
+		try {
+			aTable = getResult(statements.answer);
+		} catch (SQLException e) {
+			throw (e instanceof AnswerException) ? e : new AnswerException(e);
+		}
+		return feedbackStrategy.provideFeedback(exSet, exIdx, ResultComparison
+				.compare(aTable, sTable));
+	}
+
+	/**
+	 * Waits for a statement result. Exceptions thrown by the worker are
+	 * passed on to the caller.
+	 */
+	private <T> T getResult(Future<T> future)
+			throws SQLException, ClassNotFoundException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a result.", e);
+		} catch (CancellationException e) {
+			throw new SQLException("Statement execution cancelled.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException)
+				throw (SQLException) cause;
+			if (cause instanceof ClassNotFoundException)
+				throw (ClassNotFoundException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new RuntimeException(cause);
+		} finally {
+			activeStatements.remove(future);
+		}
+	}
+
+	/** Creates a feedback without points for an answer, which failed. */
+	private Feedback createErrorFeedback(AnswerException e) {
+		Feedback result = new Feedback();
+		result.setComments("Execution failed: " + e.getMessage() + "\n");
+		result.setPoints(0);
+		return result;
+	}
+
+	/** Cancels statements which are not needed anymore. */
+	private void cancel(PendingStatements statements) {
+		for (Future<?> f : new Future<?>[] { statements.answer,
+				statements.solution, statements.comparison }) {
+			if (f != null) {
+				f.cancel(false);
+				activeStatements.remove(f);
+			}
+		}
+	}
+
+	/**
+	 * Returns the executor for statement execution. It is created on first
+	 * use with one worker thread per pooled connection. If the pool size has
+	 * changed meanwhile, a new executor is created. The previous one
+	 * completes the statements already submitted and terminates afterwards.
+	 */
+	private synchronized ExecutorService getExecutor() {
+		int poolSize = dbAccessor.getPoolSize();
+		if (executor != null && executorSize != poolSize) {
+			executor.shutdown();
+			executor = null;
+		}
+		if (executor == null) {
+			executorSize = poolSize;
+			executor = Executors.newFixedThreadPool(poolSize,
+					new ThreadFactory() {
+						private int count;
+
+						@Override
+						public synchronized Thread newThread(Runnable r) {
+							Thread result = new Thread(r, "GradingWorker-"
+									+ ++count);
+							result.setDaemon(true);
+							return result;
+						}
+					});
+		}
+		return executor;
+	}
+
+	/**
+	 * Indicates that the answer of an exercise could not be executed, e.g.
+	 * because of a syntax error or a timeout. Message, state and error code
+	 * are taken from the original exception.
+	 */
+	@SuppressWarnings("serial")
+	static class AnswerException extends SQLException {
+		AnswerException(SQLException cause) {
+			super(cause.getMessage(), cause.getSQLState(), cause
+					.getErrorCode(), cause);
+		}
+	}
+
+	/**
+	 * Results of answer and solution of an exercise, which are on the way.
+	 * In streaming comparison modes, only the comparison is set.
+	 */
+	private static class PendingStatements {
+		Future<ResultTable> answer;
+		Future<ResultTable> solution;
+		Future<ResultComparison> comparison;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.application;
+
+import java.util.Arrays;
+import java.util.List;
+
+import rl.sqltrainer.domain.ResultTable;
+
+/**
+ * Summarizes the differences between the result of an answer and the result
+ * of the corresponding solution. Feedback strategies can work on this
+ * summary instead of the complete tables, which allows to compare results
+ * which do not fit into memory.
+ *
+ * @author Ruediger Lunde
+ */
+public class ResultComparison {
+	private List<String> answerColumns;
+	private List<String> solutionColumns;
+	private int answerRowCount;
+	private int solutionRowCount;
+	private boolean sameOrder;
+	private int missingRows = -1;
+	private int extraRows = -1;
+	private boolean nullFound;
+
+	/** Column names of the answer result. */
+	public List<String> getAnswerColumns() {
+		return answerColumns;
+	}
+
+	/** Column names of the solution result. */
+	public List<String> getSolutionColumns() {
+		return solutionColumns;
+	}
+
+	public int getAnswerRowCount() {
+		return answerRowCount;
+	}
+
+	public int getSolutionRowCount() {
+		return solutionRowCount;
+	}
+
+	/** Checks whether both results contain the same rows in the same order. */
+	public boolean isSameOrder() {
+		return sameOrder;
+	}
+
+	/**
+	 * Checks whether the rows have been compared as multisets. This is only
+	 * done if the column counts agree.
+	 */
+	public boolean isContentsCompared() {
+		return missingRows >= 0;
+	}
+
+	/** Returns the number of solution rows not contained in the answer. */
+	public int getMissingRows() {
+		return missingRows;
+	}
+
+	/** Returns the number of answer rows not contained in the solution. */
+	public int getExtraRows() {
+		return extraRows;
+	}
+
+	/** Checks whether null values have been found in one of the results. */
+	public boolean isNullFound() {
+		return nullFound;
+	}
+
+	void setColumns(List<String> answerColumns, List<String> solutionColumns) {
+		this.answerColumns = answerColumns;
+		this.solutionColumns = solutionColumns;
+	}
+
+	void setRowCounts(int answerRowCount, int solutionRowCount) {
+		this.answerRowCount = answerRowCount;
+		this.solutionRowCount = solutionRowCount;
+	}
+
+	void setSameOrder(boolean sameOrder) {
+		this.sameOrder = sameOrder;
+	}
+
+	void setDifference(int missingRows, int extraRows) {
+		this.missingRows = missingRows;
+		this.extraRows = extraRows;
+	}
+
+	void setNullFound(boolean nullFound) {
+		this.nullFound = nullFound;
+	}
+
+	/**
+	 * Compares two tables in memory. The tables are converted into result
+	 * tables with text columns.
+	 *
+	 * @param aData
+	 *            Column names of the answer result followed by rows.
+	 * @param sData
+	 *            Column names of the solution result followed by rows.
+	 */
+	public static ResultComparison compare(List<List<String>> aData,
+			List<List<String>> sData) {
+		return compare(new ResultTable(aData), new ResultTable(sData));
+	}
+
+	/**
+	 * Compares two tables in memory. Rows are compared as multisets using a
+	 * hash table of solution row indices: each solution row increments and
+	 * each answer row decrements the counter of its first occurrence in the
+	 * solution, so positive counts remain for missing rows. Answer rows
+	 * without counterpart are extra rows, as well as negative counts. The
+	 * comparison needs linear time and works with null values. Values of
+	 * numeric columns are compared as numbers without formatting them, see
+	 * {@link ResultTable.RowMatcher}.
+	 */
+	public static ResultComparison compare(ResultTable aTable,
+			ResultTable sTable) {
+		ResultComparison result = new ResultComparison();
+		int aRows = aTable.getRowCount();
+		int sRows = sTable.getRowCount();
+		result.setColumns(aTable.getColumnNames(), sTable.getColumnNames());
+		result.setRowCounts(aRows, sRows);
+		if (aTable.getColumnCount() != sTable.getColumnCount()) {
+			result.setSameOrder(aRows == 0 && sRows == 0);
+			return result;
+		}
+		ResultTable.RowMatcher matcher =
+			new ResultTable.RowMatcher(aTable, sTable);
+		boolean sameOrder = (aRows == sRows);
+		for (int i = 0; i < aRows && sameOrder; i++)
+			sameOrder = matcher.equals(aTable, i, sTable, i);
+		result.setSameOrder(sameOrder);
+		result.setNullFound(aTable.containsNull() || sTable.containsNull());
+
+		int[] slots = new int[Integer.highestOneBit(Math.max(sRows, 1)) * 4];
+		Arrays.fill(slots, -1);
+		int mask = slots.length - 1;
+		int[] counts = new int[sRows];
+		for (int row = 0; row < sRows; row++) {
+			int slot = matcher.hashCode(sTable, row) & mask;
+			while (slots[slot] != -1
+					&& !matcher.equals(sTable, slots[slot], sTable, row))
+				slot = (slot + 1) & mask;
+			if (slots[slot] == -1)
+				slots[slot] = row;
+			counts[slots[slot]]++;
+		}
+		int extra = 0;
+		for (int row = 0; row < aRows; row++) {
+			int slot = matcher.hashCode(aTable, row) & mask;
+			while (slots[slot] != -1
+					&& !matcher.equals(sTable, slots[slot], aTable, row))
+				slot = (slot + 1) & mask;
+			if (slots[slot] != -1)
+				counts[slots[slot]]--;
+			else
+				extra++;
+		}
+		int missing = 0;
+		for (int count : counts) {
+			if (count > 0)
+				missing += count;
+			else
+				extra -= count;
+		}
+		result.setDifference(missing, extra);
+		return result;
+	}
+}
@@ -1,359 +1,744 @@
-/*
- * Copyright (C) 2008-2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.sqltrainer.application;
-
-import java.awt.Image;
-import java.io.File;
-import java.io.IOException;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
-
-import javax.imageio.ImageIO;
-
-import rl.sqltrainer.domain.Database;
-import rl.sqltrainer.domain.Exercise;
-import rl.sqltrainer.domain.ExerciseSet;
-import rl.sqltrainer.domain.Feedback;
-import rl.sqltrainer.domain.Exercise.Type;
-import rl.sqltrainer.persistence.AsciiFileHandler;
-import rl.sqltrainer.persistence.DBConnectionHandler;
-import rl.sqltrainer.persistence.XMLFileHandler;
-import rl.util.exceptions.EncryptionException;
-import rl.util.exceptions.ErrorHandler;
-import rl.util.exceptions.PersistenceException;
-import rl.util.persistence.PropertyManager;
-
-/**
- * Facade, hiding domain layer details from the GUI layer. The complete
- * application can (and should) be controlled by an instance of this class.
- * @author Ruediger Lunde
- */
-public class SQLTrainer {
-	private final File dbInfoPath;
-	private final File dtdPath;
-	
-	private DBConnectionHandler dbAccessor;
-	private XMLFileHandler xmlFileHandler;
-	private FeedbackStrategy feedbackStrategy;
-	
-	private final List<Database> databases;
-	private int currDatabaseIdx;
-	private Image currDatabaseSchema;
-	private String currDatabaseDescription;
-	
-	private ExerciseSet currExerciseSet;
-	private int currExerciseIdx;
-	private boolean hasUnsavedChanges;
-	final private List<List<String>> resultTableData;
-	
-	/**
-	 * Standard constructor. Default connection data and database information
-	 * is provided by the property manager.
-	 */
-	public SQLTrainer() {
-		dbInfoPath = PropertyManager.getAppDataDirectory("dbinfo");
-		dtdPath = PropertyManager.getAppDataDirectory("xml");
-		
-		
-		XMLFileHandler.setDtdPath(dtdPath);
-		PropertyManager pm = PropertyManager.getInstance();
-		dbAccessor = new DBConnectionHandler();
-		if (pm.hasValue("db.jdbc.driver")) {
-			dbAccessor.setJdbcDriverData(
-					pm.getStringValue("db.jdbc.driver", "??"),
-					pm.getStringValue("db.jdbc.url", "??"));
-		}
-		xmlFileHandler = new XMLFileHandler();
-		feedbackStrategy = new SimpleFeedbackStrategy();
-		databases = new ArrayList<Database>();
-		List<String> logNames = pm.getListValue("db.names.logical", null);
-		List<String> physNames = pm.getListValue("db.names.physical", null);
-		if (logNames != null && physNames != null) {
-			for (int i = 0; i < logNames.size(); i++) {
-				String logName = logNames.get(i);
-				File schema = new File(dbInfoPath, logName + ".png");
-				File desc = new File(dbInfoPath, logName + ".html");
-				databases.add(new Database(logName, physNames.get(i),
-						(schema.exists() ? schema : null),
-						(desc.exists() ? desc : null)));			
-			}
-		}
-		currDatabaseIdx = -1;
-		currExerciseIdx = -1;
-		hasUnsavedChanges = false;
-		dbAccessor.setConnectionData(
-				pm.getStringValue("db.conn.server", ""),
-				"",
-				pm.getStringValue("db.conn.user", ""),
-				pm.getStringValue("db.conn.passwd", ""));
-		resultTableData  = new ArrayList<List<String>>();
-	}
-	
-	/** Returns four strings: server name, database name, user name, and password. */
-	public String[] getDBConnectionData() {
-		return dbAccessor.getConnectionData();
-	}
-	
-	/** Changes the connection data as specified. */
-	public void setDBConnectionData(String server, String db, String user, String passwd) {
-		PropertyManager pm = PropertyManager.getInstance();
-		pm.setValue("db.conn.server", server);
-		pm.setValue("db.conn.user", user);
-		pm.setValue("db.conn.passwd", passwd);
-		dbAccessor.setConnectionData(server, db, user, passwd);
-	}
-	
-	/** Returns the logical names of all databases known by the SQLTrainer. */
-	public List<String> getLogicalDBNames() {
-		List<String> result = new ArrayList<String>();
-		for (Database db : databases)
-			result.add(db.getLogicalName());
-		return result;
-	}
-	
-	/**
-	 * Sets the the specified database as current database, updates connection
-	 * data if necessary and returns true if the new database differs from the
-	 * previous selection.
-	 */
-	public boolean setDB(String logicalName) throws IOException {
-		boolean result = false;
-		int idx = getLogicalDBNames().indexOf(logicalName);
-		if (idx < 0) {
-			ErrorHandler.getInstance().handleWarning(new RuntimeException
-			("Database " + logicalName + " not found."));
-		} else if (idx != currDatabaseIdx) {
-			Database currDB = databases.get(idx);
-			String physDBName = currDB.getPhysicalName();
-			currDatabaseIdx = idx;
-			result = true;
-			String[] connData = dbAccessor.getConnectionData();
-			if (!connData[1].equals(physDBName))
-				dbAccessor.setConnectionData
-				(connData[0], physDBName, connData[2], connData[3]);
-			if (currDB.getSchema() != null)
-				currDatabaseSchema = ImageIO.read(currDB.getSchema());
-			if (currDB.getDescription() != null)
-				currDatabaseDescription = new AsciiFileHandler().readFile
-				(currDB.getDescription());
-		}
-		return result;
-	}
-	
-	public Image getDBSchemaImage() {
-		return currDatabaseSchema;
-	}
-	
-	public String getDBDescription() {
-		return currDatabaseDescription;
-	}
-	
-	public void loadExerciseSet(File file) throws PersistenceException {
-		currExerciseSet = null;
-		hasUnsavedChanges = false;
-		currExerciseIdx = -1;
-		currExerciseSet = xmlFileHandler.loadExerciseSet(file);
-	}
-	
-	public void saveExerciseSet(File xmlFile, File htmlFile)
-	throws PersistenceException {
-		if (currExerciseSet != null) {
-			xmlFileHandler.saveExerciseSet(xmlFile, currExerciseSet);
-			hasUnsavedChanges = false;
-			if (htmlFile != null)
-				xmlFileHandler.transformExerciseSetToHTML
-				(xmlFile, htmlFile, currExerciseSet.getPasswd().isEmpty());
-		}
-	}
-	
-	public void closeExerciseSet() {
-		currExerciseSet = null;
-		currExerciseIdx = -1;
-		clearTableData();
-	}
-	
-	public boolean hasUnsavedChanges() {
-		return hasUnsavedChanges;
-	}
-	
-	public ExerciseSet getExerciseSet() {
-		return currExerciseSet;
-	}
-	
-	public void setCurrExercise(int idx) {
-		currExerciseIdx = idx;
-	}
-	
-	public Exercise getCurrExercise() {
-		if (currExerciseIdx != -1)
-			return currExerciseSet.getExercise(currExerciseIdx);
-		else
-			return null;
-	}
-	
-	public int getCurrExerciseIdx() {
-		return currExerciseIdx;
-	}
-	
-	/**
-	 * Replaces the maintained answer and solution texts for the current
-	 * exercise if the new values differ to the old ones.
-	 * @param answer Possibly null.
-	 * @param solution Possibly null.
-	 */
-	public void updateCurrExercise(String answer, String solution) {
-		if (currExerciseIdx != -1) {
-			if (answer != null && !getCurrExercise().getAnswer().equals(answer)) {
-				currExerciseSet.setAnswer(currExerciseIdx, answer);
-				hasUnsavedChanges = true;
-			}
-			if (solution != null && !getCurrExercise().getSolution().equals(solution)) {
-				getCurrExercise().setSolution(solution);
-				hasUnsavedChanges = true;
-			}
-		}
-	}
-	
-	
-	/////////////////////////////////////////////////////////////////
-	// Special methods for doing SQL exercises.
-	
-	/**
-	 * Executes the given SQL statement on the database server and updates
-	 * the result table data.
-	 * @throws SQLException
-	 * @throws ClassNotFoundException
-	 */
-	public void executeStatement(String statement)
-	throws SQLException, ClassNotFoundException {
-		resultTableData.clear();
-		List<List<String>> data = dbAccessor.executeStatement(statement);
-		resultTableData.addAll(data);
-	}
-	
-	/**
-	 * Returns a list of lists of values. The first list contains the
-	 * column names, all other lists contain rows with data set values.
-	 * The list of lists can be empty!
-	 */
-	public List<List<String>> getResultTableData() {
-		return resultTableData;
-	}
-	
-	/** Removes all data from the result table. */
-	public void clearTableData() {
-		resultTableData.clear();
-	}
-	
-	/**
-	 * Creates a feedback for the current exercise or for the whole
-	 * exercise set if <code>currExerciseIdx</code> is -1.
-	 */
-	public Feedback provideFeedback()
-	throws SQLException, ClassNotFoundException, EncryptionException {
-		if (currExerciseIdx != -1) {
-			return provideFeedback(currExerciseIdx);
-		} else {
-			Feedback result = new Feedback();
-			ArrayList<StringBuffer> exPoints = new ArrayList<StringBuffer>();
-			int sumPoints = 0;
-			for (int exIdx = 0; exIdx < currExerciseSet.size(); exIdx++) {
-				Exercise ex = currExerciseSet.getExercise(exIdx);
-				try {
-					if (ex.getType() == Type.SQL && !ex.getAnswer().isEmpty()) {
-						Feedback f = provideFeedback(exIdx);
-						while (f.getPoints()+1 > exPoints.size())
-							exPoints.add(new StringBuffer());
-						StringBuffer sb = exPoints.get(f.getPoints());
-						if (sb.length() > 0)
-							sb.append(", ");
-						sb.append(ex.getID());
-						sumPoints += f.getPoints();
-					}
-				} catch (Exception e) {
-					throw new RuntimeException
-					("While generating feedback for exercise "
-							+ ex.getID() + " ...", e);
-				}
-			}
-			StringBuffer comments = new StringBuffer();
-			for (int i = exPoints.size()-1; i > 0; i--) {
-				if (exPoints.get(i).length() > 0)
-					comments.append
-					("Exercises with " + i + (i!=1 ? " points: " : " point: ")
-							+ exPoints.get(i).toString() + "\n");
-			}
-			result.setComments(comments.toString());
-			result.setPoints(sumPoints);
-			return result;
-		}
-	}
-	
-	/**
-	 * Executes the answer of the specified exercise (an SQL statement) on the
-	 * database server and also the solution of the specified exercise
-	 * and asks the used feedback strategy for a feedback.
-	 */
-	public Feedback provideFeedback(int exerciseIdx)
-	throws SQLException, ClassNotFoundException, EncryptionException {
-		String answer = currExerciseSet.getExercise(exerciseIdx).getAnswer();
-		String solution = currExerciseSet.getDecryptedSolution(exerciseIdx);
-		List<List<String>> aData = dbAccessor.executeStatement(answer);
-		List<List<String>> sData = dbAccessor.executeStatement(solution);
-		
-		return feedbackStrategy.provideFeedback
-		(currExerciseSet, exerciseIdx, aData, sData);
-	}
-	
-	
-	/////////////////////////////////////////////////////////////////
-	// Authoring methods...
-	
-	public void newExerciseSet() {
-		currExerciseSet = new ExerciseSet("", "", "", "");
-		hasUnsavedChanges = false;
-		currExerciseIdx = -1;
-	}
-	
-	public void modifyExerciseSetData(String course, String lecturer,
-			String id, String db, String intro) {
-		currExerciseSet.setData(course, lecturer, id, db);
-		currExerciseSet.setIntro(intro);
-		hasUnsavedChanges = true;
-	}
-	
-	public void modifyCurrExerciseData(String id, String type, String theme,
-			String question) {
-		if (currExerciseIdx != -1) {
-			getCurrExercise().setData(id,
-					(type.equals("sql") ? Type.SQL : Type.OTHER),
-					theme, question);
-			hasUnsavedChanges = true;
-		}
-	}
-	
-	public void insertExercise(Exercise ex) {
-		List<Exercise> exercises = currExerciseSet.getExercises();
-		exercises.add(++currExerciseIdx, ex);
-		hasUnsavedChanges = true;
-	}
-	
-	public Exercise deleteCurrExercise() {
-		Exercise result = getCurrExercise();
-		currExerciseSet.getExercises().remove(currExerciseIdx);
-		if (currExerciseIdx == currExerciseSet.size())
-			currExerciseIdx--;
-		hasUnsavedChanges = true;
-		return result;
-	}
-	
-	public void moveCurrExercise(boolean up) {
-		int insertPos = (up ? currExerciseIdx-2 : currExerciseIdx);
-		Exercise ex = deleteCurrExercise();
-		currExerciseIdx = insertPos;
-		insertExercise(ex);
-	}
-}
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.application;
+
+import java.awt.Image;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import rl.sqltrainer.domain.Database;
+import rl.sqltrainer.domain.Exercise;
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.sqltrainer.domain.Feedback;
+import rl.sqltrainer.domain.ResultTable;
+import rl.sqltrainer.domain.SolutionSnapshot;
+import rl.sqltrainer.domain.Exercise.Type;
+import rl.sqltrainer.persistence.BinaryFileHandler;
+import rl.sqltrainer.persistence.DBConnectionHandler;
+import rl.sqltrainer.persistence.EditJournal;
+import rl.sqltrainer.persistence.ResultCursor;
+import rl.sqltrainer.persistence.SnapshotFileHandler;
+import rl.sqltrainer.persistence.XMLFileHandler;
+import rl.util.exceptions.EncryptionException;
+import rl.util.exceptions.ErrorHandler;
+import rl.util.exceptions.PersistenceException;
+import rl.util.persistence.PropertyManager;
+
+/**
+ * Facade, hiding domain layer details from the GUI layer. The complete
+ * application can (and should) be controlled by an instance of this class.
+ * @author Ruediger Lunde
+ */
+public class SQLTrainer {
+	private final File dbInfoPath;
+	private final File dtdPath;
+	
+	private DBConnectionHandler dbAccessor;
+	private XMLFileHandler xmlFileHandler;
+	private BinaryFileHandler binaryFileHandler;
+	/**
+	 * XML files larger than this size in KB are loaded lazily, negative
+	 * values disable lazy loading.
+	 */
+	private int lazyLoadingThreshold = -1;
+	/**
+	 * Maximal delay in milliseconds for writing edits to the journal,
+	 * negative values disable the journal.
+	 */
+	private int journalSyncDelay = -1;
+	/** Journal of the current exercise set file, possibly null. */
+	private EditJournal journal;
+	private FeedbackStrategy feedbackStrategy;
+	private GradingEngine gradingEngine;
+	private SolutionResultCache solutionCache;
+	
+	private final List<Database> databases;
+	private int currDatabaseIdx;
+	private final DatabaseInfoCache dbInfoCache;
+	private String currDatabaseDescription;
+	
+	private ExerciseSet currExerciseSet;
+	/** File from which the current exercise set was loaded, possibly null. */
+	private File currExerciseSetFile;
+	private int currExerciseIdx;
+	private boolean hasUnsavedChanges;
+	final private ResultTable resultTable;
+	private boolean resultTableTruncated;
+	
+	/**
+	 * Standard constructor. Default connection data and database information
+	 * is provided by the property manager.
+	 */
+	public SQLTrainer() {
+		dbInfoPath = PropertyManager.getAppDataDirectory("dbinfo");
+		dtdPath = PropertyManager.getAppDataDirectory("xml");
+		
+		
+		XMLFileHandler.setDtdPath(dtdPath);
+		PropertyManager pm = PropertyManager.getInstance();
+		dbAccessor = new DBConnectionHandler();
+		if (pm.hasValue("db.jdbc.driver")) {
+			dbAccessor.setJdbcDriverData(
+					pm.getStringValue("db.jdbc.driver", "??"),
+					pm.getStringValue("db.jdbc.url", "??"));
+		}
+		if (pm.hasValue("db.pool.size")) {
+			dbAccessor.setPoolData(
+					pm.getIntValue("db.pool.size", 4),
+					pm.getIntValue("db.pool.idleTimeout", 300));
+		}
+		if (pm.hasValue("db.result.maxRows")) {
+			dbAccessor.setCursorData(
+					pm.getIntValue("db.result.fetchSize", 100),
+					pm.getIntValue("db.result.maxRows", 10000));
+		}
+		xmlFileHandler = new XMLFileHandler();
+		binaryFileHandler = new BinaryFileHandler();
+		if (pm.hasValue("exercises.lazyLoadingThreshold"))
+			lazyLoadingThreshold =
+				pm.getIntValue("exercises.lazyLoadingThreshold", -1);
+		if (pm.hasValue("exercises.journal.syncDelay"))
+			journalSyncDelay =
+				pm.getIntValue("exercises.journal.syncDelay", -1);
+		feedbackStrategy = new SimpleFeedbackStrategy();
+		solutionCache = new SolutionResultCache();
+		if (pm.hasValue("feedback.cache.maxEntries")) {
+			solutionCache.setLimits(
+					pm.getIntValue("feedback.cache.maxEntries", 100),
+					pm.getIntValue("feedback.cache.maxMemory", 16));
+		}
+		gradingEngine = new GradingEngine
+		(dbAccessor, feedbackStrategy, solutionCache);
+		if (pm.hasValue("feedback.compare.runSize")) {
+			gradingEngine.setStreamingComparisonData(
+					pm.getIntValue("feedback.compare.runSize", 50000),
+					pm.getStringValue("feedback.compare.exceptOperator",
+							"EXCEPT ALL"));
+		}
+		databases = new ArrayList<Database>();
+		List<String> logNames = pm.getListValue("db.names.logical", null);
+		List<String> physNames = pm.getListValue("db.names.physical", null);
+		List<String> timeouts = null;
+		if (pm.hasValue("db.queryTimeouts"))
+			timeouts = pm.getListValue("db.queryTimeouts", null);
+		List<String> compModes = null;
+		if (pm.hasValue("db.comparisonModes"))
+			compModes = pm.getListValue("db.comparisonModes", null);
+		if (logNames != null && physNames != null) {
+			for (int i = 0; i < logNames.size(); i++) {
+				String logName = logNames.get(i);
+				File schema = new File(dbInfoPath, logName + ".png");
+				File desc = new File(dbInfoPath, logName + ".html");
+				Database db = new Database(logName, physNames.get(i),
+						(schema.exists() ? schema : null),
+						(desc.exists() ? desc : null));
+				if (timeouts != null && i < timeouts.size())
+					db.setQueryTimeout(Integer.parseInt(timeouts.get(i).trim()));
+				if (compModes != null && i < compModes.size())
+					db.setComparisonMode(Database.ComparisonMode.valueOf
+							(compModes.get(i).trim().toUpperCase()));
+				databases.add(db);
+			}
+		}
+		dbInfoCache = new DatabaseInfoCache();
+		dbInfoCache.preload(databases);
+		currDatabaseIdx = -1;
+		currExerciseIdx = -1;
+		hasUnsavedChanges = false;
+		dbAccessor.setConnectionData(
+				pm.getStringValue("db.conn.server", ""),
+				"",
+				pm.getStringValue("db.conn.user", ""),
+				pm.getStringValue("db.conn.passwd", ""));
+		resultTable = new ResultTable();
+	}
+	
+	/** Returns four strings: server name, database name, user name, and password. */
+	public String[] getDBConnectionData() {
+		return dbAccessor.getConnectionData();
+	}
+	
+	/** Changes the connection data as specified. */
+	public void setDBConnectionData(String server, String db, String user, String passwd) {
+		PropertyManager pm = PropertyManager.getInstance();
+		pm.setValue("db.conn.server", server);
+		pm.setValue("db.conn.user", user);
+		pm.setValue("db.conn.passwd", passwd);
+		String[] connData = dbAccessor.getConnectionData();
+		if (!connData[0].equals(server) || !connData[1].equals(db))
+			solutionCache.clear();
+		dbAccessor.setConnectionData(server, db, user, passwd);
+	}
+	
+	/** Returns the logical names of all databases known by the SQLTrainer. */
+	public List<String> getLogicalDBNames() {
+		List<String> result = new ArrayList<String>();
+		for (Database db : databases)
+			result.add(db.getLogicalName());
+		return result;
+	}
+	
+	/**
+	 * Sets the the specified database as current database, updates connection
+	 * data if necessary and returns true if the new database differs from the
+	 * previous selection.
+	 */
+	public boolean setDB(String logicalName) throws IOException {
+		boolean result = false;
+		int idx = getLogicalDBNames().indexOf(logicalName);
+		if (idx < 0) {
+			ErrorHandler.getInstance().handleWarning(new RuntimeException
+			("Database " + logicalName + " not found."));
+		} else if (idx != currDatabaseIdx) {
+			Database currDB = databases.get(idx);
+			String physDBName = currDB.getPhysicalName();
+			currDatabaseIdx = idx;
+			result = true;
+			String[] connData = dbAccessor.getConnectionData();
+			if (!connData[1].equals(physDBName)) {
+				dbAccessor.setConnectionData
+				(connData[0], physDBName, connData[2], connData[3]);
+				solutionCache.clear();
+			}
+			dbAccessor.setQueryTimeout(currDB.getQueryTimeout());
+			gradingEngine.setComparisonMode(currDB.getComparisonMode());
+			currDatabaseDescription = dbInfoCache.getDescription(currDB);
+			dbInfoCache.getSchemaImage(currDB);
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the schema image of the current database, scaled by the
+	 * factor set for schema images, or null if there is none.
+	 */
+	public Image getDBSchemaImage() {
+		Image result = null;
+		if (currDatabaseIdx >= 0) {
+			try {
+				result = dbInfoCache.getSchemaImage(databases.get(currDatabaseIdx));
+			} catch (IOException e) {
+				ErrorHandler.getInstance().handleWarning(new RuntimeException
+						("Could not read the database schema.", e));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Sets the factor by which schema images are scaled. Scaled images are
+	 * prepared in the background.
+	 */
+	public void setDBSchemaScale(float scale) {
+		dbInfoCache.setScale(scale);
+	}
+	
+	public String getDBDescription() {
+		return currDatabaseDescription;
+	}
+	
+	/**
+	 * Loads an exercise set. Unsaved edits of a previous session which are
+	 * found in the journal of the file are restored.
+	 */
+	public void loadExerciseSet(File file) throws PersistenceException {
+		discardJournal();
+		currExerciseSet = null;
+		hasUnsavedChanges = false;
+		currExerciseIdx = -1;
+		solutionCache.clear();
+		setSolutionSnapshot(null);
+		if (BinaryFileHandler.isBinaryFile(file))
+			currExerciseSet = binaryFileHandler.loadExerciseSet(file);
+		else
+			currExerciseSet = xmlFileHandler.loadExerciseSet(file,
+					lazyLoadingThreshold >= 0
+					&& file.length() > lazyLoadingThreshold * 1024L);
+		currExerciseSetFile = file;
+		File snapshotFile = SnapshotFileHandler.getSnapshotFile(file);
+		if (snapshotFile.exists()) {
+			try {
+				SolutionSnapshot snapshot =
+					new SnapshotFileHandler().loadSnapshot(snapshotFile);
+				if (computeSolutionsHash(currExerciseSet).equals
+						(snapshot.getSolutionsHash()))
+					setSolutionSnapshot(snapshot);
+				else
+					ErrorHandler.getInstance().handleWarning(new RuntimeException
+							("Solution snapshot ignored. It was created for"
+									+ " other solutions."));
+			} catch (PersistenceException e) {
+				ErrorHandler.getInstance().handleWarning(new RuntimeException
+						("Solution snapshot ignored.", e));
+			} catch (EncryptionException e) {
+				ErrorHandler.getInstance().handleWarning(new RuntimeException
+						("Solution snapshot ignored.", e));
+			}
+		}
+		openJournal(file);
+		if (journal != null && journal.getReplayedEdits() > 0) {
+			hasUnsavedChanges = true;
+			ErrorHandler.getInstance().handleWarning(new RuntimeException
+					(journal.getReplayedEdits() + " unsaved edits of the last"
+							+ " session have been restored."));
+		}
+	}
+	
+	public void saveExerciseSet(File xmlFile, File htmlFile)
+	throws PersistenceException {
+		if (currExerciseSet != null) {
+			if (BinaryFileHandler.isBinaryFile(xmlFile))
+				binaryFileHandler.saveExerciseSet(xmlFile, currExerciseSet);
+			else
+				xmlFileHandler.saveExerciseSet(xmlFile, htmlFile,
+						currExerciseSet, currExerciseSet.getPasswd().isEmpty());
+			hasUnsavedChanges = false;
+			if (journal != null && xmlFile.equals(currExerciseSetFile)) {
+				journal.clear();
+			} else {
+				// the saved file supersedes edits recorded for other files
+				discardJournal();
+				EditJournal.getJournalFile(xmlFile).delete();
+				openJournal(xmlFile);
+			}
+			currExerciseSetFile = xmlFile;
+		}
+	}
+	
+	/** Opens the journal for the given exercise set file if enabled. */
+	private void openJournal(File file) {
+		if (journalSyncDelay >= 0) {
+			try {
+				journal = new EditJournal(EditJournal.getJournalFile(file),
+						currExerciseSet, journalSyncDelay);
+			} catch (PersistenceException e) {
+				ErrorHandler.getInstance().handleWarning(new RuntimeException
+						("Edit journal disabled.", e));
+			}
+		}
+	}
+	
+	/** Closes and deletes the journal of the current exercise set. */
+	private void discardJournal() {
+		if (journal != null) {
+			try {
+				journal.delete();
+			} catch (PersistenceException e) {
+				ErrorHandler.getInstance().handleWarning(e);
+			}
+			journal = null;
+		}
+	}
+	
+	public void closeExerciseSet() {
+		discardJournal();
+		currExerciseSet = null;
+		currExerciseSetFile = null;
+		currExerciseIdx = -1;
+		solutionCache.clear();
+		setSolutionSnapshot(null);
+		clearTableData();
+	}
+	
+	public boolean hasUnsavedChanges() {
+		return hasUnsavedChanges;
+	}
+	
+	public ExerciseSet getExerciseSet() {
+		return currExerciseSet;
+	}
+	
+	public void setCurrExercise(int idx) {
+		currExerciseIdx = idx;
+	}
+	
+	public Exercise getCurrExercise() {
+		if (currExerciseIdx != -1)
+			return currExerciseSet.getExercise(currExerciseIdx);
+		else
+			return null;
+	}
+	
+	public int getCurrExerciseIdx() {
+		return currExerciseIdx;
+	}
+	
+	/**
+	 * Replaces the maintained answer and solution texts for the current
+	 * exercise if the new values differ to the old ones. Changes are
+	 * recorded in the journal of the exercise set file.
+	 * @param answer Possibly null.
+	 * @param solution Possibly null.
+	 */
+	public void updateCurrExercise(String answer, String solution) {
+		if (currExerciseIdx != -1) {
+			if (answer != null && !getCurrExercise().getAnswer().equals(answer)) {
+				currExerciseSet.setAnswer(currExerciseIdx, answer);
+				hasUnsavedChanges = true;
+				if (journal != null)
+					journal.recordAnswer(currExerciseSet, currExerciseIdx);
+			}
+			if (solution != null && !getCurrExercise().getSolution().equals(solution)) {
+				getCurrExercise().setSolution(solution);
+				hasUnsavedChanges = true;
+				if (journal != null)
+					journal.recordSolution(currExerciseSet, currExerciseIdx);
+			}
+		}
+	}
+	
+	
+	/////////////////////////////////////////////////////////////////
+	// Special methods for doing SQL exercises.
+	
+	/**
+	 * Executes the given SQL statement on the database server and updates
+	 * the result table data. Rows are read one by one and reading stops
+	 * when the row limit of the database accessor has been reached.
+	 * Must be called by the thread which is responsible for the result
+	 * table (typically the event dispatch thread).
+	 * @throws SQLException
+	 * @throws ClassNotFoundException
+	 */
+	public void executeStatement(String statement)
+	throws SQLException, ClassNotFoundException {
+		clearTableData();
+		ResultCursor cursor = openResultCursor(statement);
+		try {
+			resultTable.setColumns(cursor.createResultTable());
+			while (cursor.nextRow(resultTable))
+				;
+		} finally {
+			cursor.close();
+		}
+		resultTableTruncated = cursor.isTruncated();
+	}
+	
+	/**
+	 * Executes the given SQL statement on the database server and returns
+	 * a cursor for reading the result. The number of rows delivered by the
+	 * cursor is limited, the query timeout of the current database is used.
+	 * The caller is responsible for closing the cursor. This method can be
+	 * called by any thread.
+	 */
+	public ResultCursor openResultCursor(String statement)
+	throws SQLException, ClassNotFoundException {
+		return dbAccessor.openCursor(statement);
+	}
+	
+	/**
+	 * Replaces the result table data by an empty table with the same
+	 * columns as the given table.
+	 */
+	public void startResultTable(ResultTable columns) {
+		resultTable.setColumns(columns);
+		resultTableTruncated = false;
+	}
+	
+	/**
+	 * Appends rows to the result table data. Must be called by the thread
+	 * which is responsible for the result table.
+	 */
+	public void addResultTableRows(ResultTable rows) {
+		resultTable.addRows(rows);
+	}
+	
+	/** Marks the result table data as truncated (or complete). */
+	public void setResultTableTruncated(boolean truncated) {
+		resultTableTruncated = truncated;
+	}
+	
+	/**
+	 * Asks the database server to abort all statements, which are
+	 * currently executed on behalf of this application. The threads
+	 * waiting for the results receive an <code>SQLException</code>.
+	 */
+	public void cancelStatements() {
+		gradingEngine.cancel();
+		dbAccessor.cancelStatements();
+	}
+	
+	/**
+	 * Returns the result table of the last statement execution. The table
+	 * can have no columns at all!
+	 */
+	public ResultTable getResultTable() {
+		return resultTable;
+	}
+	
+	/**
+	 * Checks whether the last statement execution delivered more rows than
+	 * the result table was allowed to hold.
+	 */
+	public boolean isResultTableTruncated() {
+		return resultTableTruncated;
+	}
+	
+	/** Removes all data from the result table. */
+	public void clearTableData() {
+		resultTable.clear();
+		resultTableTruncated = false;
+	}
+	
+	/**
+	 * Creates a feedback for the current exercise or for the whole
+	 * exercise set if <code>currExerciseIdx</code> is -1. The exercises
+	 * of the set are graded in parallel by the grading engine.
+	 */
+	public Feedback provideFeedback()
+	throws SQLException, ClassNotFoundException, EncryptionException {
+		if (currExerciseIdx != -1)
+			return provideFeedback(currExerciseIdx);
+		else
+			return summarizeFeedbacks(currExerciseSet,
+					provideFeedbacks(currExerciseSet));
+	}
+	
+	/**
+	 * Returns a copy of the current exercise set, which contains everything
+	 * needed to grade the current exercise or, if no exercise is selected,
+	 * the whole set. Feedback for the copy can be computed in the background
+	 * by {@link #provideFeedback(ExerciseSet, int)} while the current
+	 * exercise set is edited or replaced.
+	 */
+	public ExerciseSet copyExerciseSetForFeedback() {
+		List<Integer> exIdxs = new ArrayList<Integer>();
+		if (currExerciseIdx != -1)
+			exIdxs.add(currExerciseIdx);
+		else
+			exIdxs = getAnsweredSQLExercises(currExerciseSet);
+		return currExerciseSet.copyForGrading(exIdxs);
+	}
+	
+	/**
+	 * Creates a feedback for the specified exercise of the given set or for
+	 * the whole set if <code>exIdx</code> is -1. In contrast to
+	 * {@link #provideFeedback()}, the current exercise set is not accessed.
+	 */
+	public Feedback provideFeedback(ExerciseSet exSet, int exIdx)
+	throws SQLException, ClassNotFoundException, EncryptionException {
+		if (exIdx != -1)
+			return gradingEngine.provideFeedback(exSet, exIdx);
+		else
+			return summarizeFeedbacks(exSet, provideFeedbacks(exSet));
+	}
+	
+	/**
+	 * Grades all SQL exercises of the given exercise set, which have an
+	 * answer, in parallel. The set does not need to be the current
+	 * exercise set, and this method can be called by several threads at
+	 * the same time. The solutions are executed on the current database.
+	 * Exercises, whose answer cannot be executed, get zero points.
+	 * @return A list containing a feedback for each exercise of the set
+	 *         (null for exercises without feedback).
+	 */
+	public List<Feedback> provideFeedbacks(ExerciseSet exSet) {
+		List<Integer> exIdxs = getAnsweredSQLExercises(exSet);
+		List<Feedback> feedbacks = gradingEngine.provideFeedback(exSet, exIdxs);
+		List<Feedback> result = new ArrayList<Feedback>();
+		for (int exIdx = 0; exIdx < exSet.size(); exIdx++)
+			result.add(null);
+		for (int i = 0; i < exIdxs.size(); i++)
+			result.set(exIdxs.get(i), feedbacks.get(i));
+		return result;
+	}
+	
+	/** Returns the indices of all SQL exercises, which have an answer. */
+	private List<Integer> getAnsweredSQLExercises(ExerciseSet exSet) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int exIdx = 0; exIdx < exSet.size(); exIdx++) {
+			Exercise ex = exSet.getExercise(exIdx);
+			if (ex.getType() == Type.SQL && !ex.getAnswer().isEmpty())
+				result.add(exIdx);
+		}
+		return result;
+	}
+	
+	/**
+	 * Executes the solutions of all SQL exercises of the given exercise set
+	 * on the current database and keeps the results in the solution result
+	 * cache. Call this method before grading many exercise sets with the
+	 * same solutions in parallel, so that each solution is executed only
+	 * once.
+	 */
+	public void precomputeSolutions(ExerciseSet exSet) throws SQLException,
+	ClassNotFoundException, EncryptionException {
+		gradingEngine.precomputeSolutions(exSet, getSolvedSQLExercises(exSet));
+	}
+	
+	/**
+	 * Combines the feedbacks for the exercises of a set into one feedback,
+	 * which lists the exercises grouped by points and the sum of all points.
+	 */
+	public Feedback summarizeFeedbacks(ExerciseSet exSet,
+			List<Feedback> feedbacks) {
+		Feedback result = new Feedback();
+		ArrayList<StringBuffer> exPoints = new ArrayList<StringBuffer>();
+		int sumPoints = 0;
+		for (int exIdx = 0; exIdx < feedbacks.size(); exIdx++) {
+			Feedback f = feedbacks.get(exIdx);
+			if (f == null)
+				continue;
+			Exercise ex = exSet.getExercise(exIdx);
+			while (f.getPoints()+1 > exPoints.size())
+				exPoints.add(new StringBuffer());
+			StringBuffer sb = exPoints.get(f.getPoints());
+			if (sb.length() > 0)
+				sb.append(", ");
+			sb.append(ex.getID());
+			sumPoints += f.getPoints();
+		}
+		StringBuffer comments = new StringBuffer();
+		for (int i = exPoints.size()-1; i > 0; i--) {
+			if (exPoints.get(i).length() > 0)
+				comments.append
+				("Exercises with " + i + (i!=1 ? " points: " : " point: ")
+						+ exPoints.get(i).toString() + "\n");
+		}
+		result.setComments(comments.toString());
+		result.setPoints(sumPoints);
+		return result;
+	}
+	
+	/**
+	 * Executes the answer of the specified exercise (an SQL statement) on the
+	 * database server and concurrently also the solution of the specified
+	 * exercise and asks the used feedback strategy for a feedback. Solution
+	 * results are cached, so repeated requests only execute the answer.
+	 */
+	public Feedback provideFeedback(int exerciseIdx)
+	throws SQLException, ClassNotFoundException, EncryptionException {
+		return gradingEngine.provideFeedback(currExerciseSet, exerciseIdx);
+	}
+	
+	
+	/////////////////////////////////////////////////////////////////
+	// Authoring methods...
+	
+	public void newExerciseSet() {
+		discardJournal();
+		currExerciseSet = new ExerciseSet("", "", "", "");
+		hasUnsavedChanges = false;
+		currExerciseIdx = -1;
+		currExerciseSetFile = null;
+		solutionCache.clear();
+		setSolutionSnapshot(null);
+	}
+	
+	/** Returns the file of the current exercise set or null if not saved. */
+	public File getExerciseSetFile() {
+		return currExerciseSetFile;
+	}
+	
+	/**
+	 * Returns a copy of the current exercise set, which contains the
+	 * solutions of all SQL exercises. A solution snapshot can be created for
+	 * the copy in the background by
+	 * {@link #createSolutionSnapshot(ExerciseSet, File)} while the current
+	 * exercise set is edited or replaced.
+	 */
+	public ExerciseSet copyExerciseSetForSnapshot() {
+		return currExerciseSet.copyForGrading
+		(getSolvedSQLExercises(currExerciseSet));
+	}
+	
+	/**
+	 * Executes the solutions of all SQL exercises of the given exercise set
+	 * on the current database and stores the results in a snapshot file next
+	 * to the given exercise set file. The current exercise set is not
+	 * accessed, use {@link #setSolutionSnapshot(SolutionSnapshot, File)} to
+	 * install the snapshot afterwards.
+	 */
+	public SolutionSnapshot createSolutionSnapshot(ExerciseSet exSet,
+			File exSetFile) throws SQLException, ClassNotFoundException,
+			EncryptionException, PersistenceException {
+		if (exSetFile == null)
+			throw new PersistenceException
+			("Exercise set must be saved before creating a solution snapshot.");
+		SolutionSnapshot result = gradingEngine.createSolutionSnapshot(
+				exSet, getSolvedSQLExercises(exSet));
+		new SnapshotFileHandler().saveSnapshot
+		(SnapshotFileHandler.getSnapshotFile(exSetFile), result);
+		return result;
+	}
+	
+	/**
+	 * Installs a snapshot, which was created for the given exercise set
+	 * file, if this file is still the file of the current exercise set.
+	 * Subsequent feedback requests compare answers with the snapshot instead
+	 * of executing the solutions again.
+	 */
+	public void setSolutionSnapshot(SolutionSnapshot snapshot, File exSetFile) {
+		if (exSetFile.equals(currExerciseSetFile))
+			setSolutionSnapshot(snapshot);
+	}
+	
+	/** Returns the indices of all SQL exercises, which have a solution. */
+	private List<Integer> getSolvedSQLExercises(ExerciseSet exSet) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int exIdx = 0; exIdx < exSet.size(); exIdx++) {
+			Exercise ex = exSet.getExercise(exIdx);
+			if (ex.getType() == Type.SQL && !ex.getSolution().isEmpty())
+				result.add(exIdx);
+		}
+		return result;
+	}
+	
+	/**
+	 * Computes the hash value, which identifies solution snapshots of the
+	 * given exercise set.
+	 */
+	private String computeSolutionsHash(ExerciseSet exSet)
+	throws EncryptionException {
+		return SolutionResultCache.computeSolutionsHash
+		(exSet.getDecryptedSolutions(getSolvedSQLExercises(exSet)));
+	}
+	
+	private void setSolutionSnapshot(SolutionSnapshot snapshot) {
+		gradingEngine.setSolutionSnapshot(snapshot);
+	}
+	
+	public void modifyExerciseSetData(String course, String lecturer,
+			String id, String db, String intro) {
+		currExerciseSet.setData(course, lecturer, id, db);
+		currExerciseSet.setIntro(intro);
+		hasUnsavedChanges = true;
+	}
+	
+	public void modifyCurrExerciseData(String id, String type, String theme,
+			String question) {
+		if (currExerciseIdx != -1) {
+			getCurrExercise().setData(id,
+					(type.equals("sql") ? Type.SQL : Type.OTHER),
+					theme, question);
+			hasUnsavedChanges = true;
+		}
+	}
+	
+	public void insertExercise(Exercise ex) {
+		List<Exercise> exercises = currExerciseSet.getExercises();
+		exercises.add(++currExerciseIdx, ex);
+		hasUnsavedChanges = true;
+	}
+	
+	public Exercise deleteCurrExercise() {
+		Exercise result = getCurrExercise();
+		currExerciseSet.getExercises().remove(currExerciseIdx);
+		if (currExerciseIdx == currExerciseSet.size())
+			currExerciseIdx--;
+		hasUnsavedChanges = true;
+		return result;
+	}
+	
+	public void moveCurrExercise(boolean up) {
+		int insertPos = (up ? currExerciseIdx-2 : currExerciseIdx);
+		Exercise ex = deleteCurrExercise();
+		currExerciseIdx = insertPos;
+		insertExercise(ex);
+	}
+}
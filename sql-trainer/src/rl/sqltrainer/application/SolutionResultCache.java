@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.application;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import rl.sqltrainer.domain.ResultTable;
+import rl.util.exceptions.EncryptionException;
+import rl.util.security.SecureHashService;
+
+/**
+ * Cache for result tables of exercise solutions. Entries are identified by
+ * the physical name of the database and a hash value of the normalized
+ * solution text. The cache is bounded by the number of entries and by the
+ * estimated memory needed for the tables; the least recently used entries
+ * are evicted first. All methods are thread-safe. Tables are shared with
+ * the callers, which must not modify them. Results of statements, which
+ * were started before the cache was cleared, e.g. because the database has
+ * changed, are recognized by the generation of the cache and not stored.
+ *
+ * @author Ruediger Lunde
+ */
+public class SolutionResultCache {
+	private int maxEntries = 100;
+	/** Memory limit in bytes. */
+	private long maxMemory = 16L * 1024 * 1024;
+	private long usedMemory;
+	/** Incremented whenever the cache is cleared. */
+	private int generation;
+	/** Entries in access order, least recently used first. */
+	private final LinkedHashMap<String, CachedTable> entries =
+		new LinkedHashMap<String, CachedTable>(16, 0.75f, true);
+
+	/**
+	 * Changes the bounds of the cache.
+	 *
+	 * @param maxEntries
+	 *            Maximal number of cached tables.
+	 * @param maxMemory
+	 *            Maximal estimated memory size of all cached tables in
+	 *            megabytes.
+	 */
+	public synchronized void setLimits(int maxEntries, int maxMemory) {
+		this.maxEntries = maxEntries;
+		this.maxMemory = maxMemory * 1024L * 1024;
+		evict();
+	}
+
+	/**
+	 * Returns the result table of the given solution or null if the table is
+	 * not in the cache.
+	 */
+	public synchronized ResultTable get(String dbName, String solution) {
+		CachedTable entry = entries.get(createKey(dbName, solution));
+		return entry != null ? entry.table : null;
+	}
+
+	/**
+	 * Returns the current generation of the cache. It must be obtained
+	 * before the database name, which is used as key, is read.
+	 */
+	public synchronized int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Stores the result table of the given solution. Tables, which exceed
+	 * the memory limit on their own, are not stored. Tables of outdated
+	 * generations are ignored.
+	 *
+	 * @param generation
+	 *            Generation of the cache when execution of the solution was
+	 *            started.
+	 */
+	public synchronized void put(String dbName, String solution,
+			ResultTable table, int generation) {
+		long size = table.estimateSize();
+		if (generation == this.generation && maxEntries > 0
+				&& size <= maxMemory) {
+			CachedTable old = entries.put(createKey(dbName, solution),
+					new CachedTable(table, size));
+			if (old != null)
+				usedMemory -= old.size;
+			usedMemory += size;
+			evict();
+		}
+	}
+
+	/** Removes all entries. */
+	public synchronized void clear() {
+		entries.clear();
+		usedMemory = 0;
+		generation++;
+	}
+
+	/** Returns the number of cached tables. */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/** Removes least recently used entries until the limits are met. */
+	private void evict() {
+		Iterator<Map.Entry<String, CachedTable>> iter =
+			entries.entrySet().iterator();
+		while (iter.hasNext()
+				&& (entries.size() > maxEntries || usedMemory > maxMemory)) {
+			usedMemory -= iter.next().getValue().size;
+			iter.remove();
+		}
+	}
+
+	/** Combines database name and a hash value of the normalized solution. */
+	private String createKey(String dbName, String solution) {
+		return dbName + "|" + computeSolutionHash(solution);
+	}
+
+	/**
+	 * Computes a hash value for the normalized solution text. Solutions which
+	 * only differ in formatting get the same value. If hash computation
+	 * fails, the normalized solution itself is returned.
+	 */
+	public static String computeSolutionHash(String solution) {
+		String result = normalize(solution);
+		try {
+			result = SecureHashService.getInstance().encrypt(result);
+		} catch (EncryptionException e) {
+			// the text itself is a perfect key, just a little longer...
+		}
+		return result;
+	}
+
+	/**
+	 * Computes a hash value for a list of solutions, e.g. all solutions of an
+	 * exercise set. The value changes if a solution is modified, added, or
+	 * removed, but not if solutions are only formatted differently.
+	 */
+	public static String computeSolutionsHash(List<String> solutions) {
+		StringBuilder hashes = new StringBuilder();
+		for (String solution : solutions)
+			hashes.append(computeSolutionHash(solution)).append('\n');
+		String result = hashes.toString();
+		try {
+			result = SecureHashService.getInstance().encrypt(result);
+		} catch (EncryptionException e) {
+			// the concatenated hash values are a perfect key, too
+		}
+		return result;
+	}
+
+	/**
+	 * Removes line comments and leading and trailing white space and replaces
+	 * sequences of white space characters by one blank. Quoted text is not
+	 * modified.
+	 */
+	static String normalize(String statement) {
+		StringBuilder result = new StringBuilder(statement.length());
+		char quote = 0;
+		boolean space = false;
+		for (int i = 0; i < statement.length(); i++) {
+			char c = statement.charAt(i);
+			if (quote != 0) {
+				result.append(c);
+				if (c == quote)
+					quote = 0;
+			} else if (c == '-' && i + 1 < statement.length()
+					&& statement.charAt(i + 1) == '-') {
+				while (i + 1 < statement.length()
+						&& statement.charAt(i + 1) != '\n')
+					i++;
+				space = true;
+			} else if (Character.isWhitespace(c)) {
+				space = true;
+			} else {
+				if (space && result.length() > 0)
+					result.append(' ');
+				space = false;
+				result.append(c);
+				if (c == '\'' || c == '"')
+					quote = c;
+			}
+		}
+		return result.toString();
+	}
+
+	/** Cached table together with its estimated size. */
+	private static class CachedTable {
+		ResultTable table;
+		long size;
+
+		CachedTable(ResultTable table, long size) {
+			this.table = table;
+			this.size = size;
+		}
+	}
+}
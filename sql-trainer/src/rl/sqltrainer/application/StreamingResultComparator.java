@@ -0,0 +1,505 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import rl.sqltrainer.domain.Database.ComparisonMode;
+import rl.sqltrainer.persistence.DBConnectionHandler;
+import rl.sqltrainer.persistence.ResultCursor;
+
+/**
+ * Compares answer and solution results without holding them in memory. Both
+ * results are read row by row, and an order-sensitive digest is computed for
+ * each of them. If the digests differ, the rows are compared as multisets,
+ * either by merging sorted runs, which have been written to temporary files
+ * while reading, or by letting the database server compute the differences
+ * with an <code>EXCEPT</code> query. In both cases, memory usage only
+ * depends on the run size, not on the result size. Statements, which cannot
+ * be used as sub-queries of an <code>EXCEPT</code> query, because they
+ * restrict their rows (<code>LIMIT</code>, <code>TOP</code>, ...) or
+ * because their columns have no unique names, are compared by merging
+ * sorted runs instead.
+ *
+ * @author Ruediger Lunde
+ */
+class StreamingResultComparator {
+	/** Null-safe lexicographic order of rows. Nulls come first. */
+	static final Comparator<List<String>> ROW_ORDER = new Comparator<List<String>>() {
+		@Override
+		public int compare(List<String> row1, List<String> row2) {
+			int result = 0;
+			int size = Math.min(row1.size(), row2.size());
+			for (int i = 0; i < size && result == 0; i++) {
+				String v1 = row1.get(i);
+				String v2 = row2.get(i);
+				if (v1 == null)
+					result = (v2 == null ? 0 : -1);
+				else if (v2 == null)
+					result = 1;
+				else
+					result = v1.compareTo(v2);
+			}
+			if (result == 0)
+				result = row1.size() - row2.size();
+			return result;
+		}
+	};
+
+	/** Keywords, which restrict the rows of a result depending on the order. */
+	private static final Set<String> RESTRICTING_WORDS = new HashSet<String>(
+			Arrays.asList("limit", "offset", "fetch", "top"));
+
+	private final DBConnectionHandler dbAccessor;
+	/** Maximal number of rows sorted in memory. */
+	private int runSize = 50000;
+	/** Operator used for database-side comparison. */
+	private String exceptOperator = "EXCEPT ALL";
+
+	/** Standard constructor. */
+	StreamingResultComparator(DBConnectionHandler dbAccessor) {
+		this.dbAccessor = dbAccessor;
+	}
+
+	/** Sets the maximal number of rows sorted in memory. */
+	void setRunSize(int runSize) {
+		this.runSize = Math.max(1, runSize);
+	}
+
+	/**
+	 * Sets the operator for database-side comparison. <code>EXCEPT ALL</code>
+	 * respects duplicates, <code>EXCEPT</code> (the only variant supported by
+	 * some servers) counts distinct rows only.
+	 */
+	void setExceptOperator(String exceptOperator) {
+		this.exceptOperator = exceptOperator;
+	}
+
+	/**
+	 * Executes answer and solution one after the other and compares their
+	 * results. Failures of the answer are reported by an
+	 * {@link GradingEngine.AnswerException}. The answer is always executed
+	 * on its own before it is combined with the solution. If the combined
+	 * query of mode {@link ComparisonMode#DATABASE} fails, e.g. because the
+	 * column types of answer and solution are not compatible, the results
+	 * are compared in mode {@link ComparisonMode#EXTERNAL} instead, unless
+	 * the statements have been cancelled meanwhile.
+	 *
+	 * @param mode
+	 *            Either {@link ComparisonMode#EXTERNAL} or
+	 *            {@link ComparisonMode#DATABASE}.
+	 */
+	ResultComparison compare(String answer, String solution, ComparisonMode mode)
+			throws SQLException, ClassNotFoundException, IOException {
+		if (mode == ComparisonMode.DATABASE
+				&& (toSubQuery(answer) == null || toSubQuery(solution) == null))
+			mode = ComparisonMode.EXTERNAL;
+		int cancelCount = dbAccessor.getCancelCount();
+		ResultComparison result = new ResultComparison();
+		boolean spill = (mode == ComparisonMode.EXTERNAL);
+		SortedRuns sRuns = null;
+		SortedRuns aRuns = null;
+		try {
+			sRuns = readResult(solution, spill, -1);
+			try {
+				aRuns = readResult(answer, spill, sRuns.columnNames.size());
+			} catch (SQLException e) {
+				throw new GradingEngine.AnswerException(e);
+			}
+			result.setColumns(aRuns.columnNames, sRuns.columnNames);
+			result.setRowCounts(aRuns.rowCount, sRuns.rowCount);
+			result.setNullFound(aRuns.nullFound || sRuns.nullFound);
+			boolean sameOrder = aRuns.rowCount == sRuns.rowCount
+					&& Arrays.equals(aRuns.digest, sRuns.digest);
+			result.setSameOrder(sameOrder);
+			if (aRuns.columnNames.size() == sRuns.columnNames.size()) {
+				if (sameOrder)
+					result.setDifference(0, 0);
+				else if (spill)
+					mergeCompare(aRuns, sRuns, result);
+				else if (hasUniqueNames(aRuns.columnNames)
+						&& hasUniqueNames(sRuns.columnNames)) {
+					try {
+						databaseCompare(answer, solution, result);
+					} catch (SQLException e) {
+						if (dbAccessor.getCancelCount() != cancelCount)
+							throw e;
+						return compare(answer, solution,
+								ComparisonMode.EXTERNAL);
+					}
+				} else
+					// results were not spilled, read them again
+					return compare(answer, solution, ComparisonMode.EXTERNAL);
+			}
+		} finally {
+			if (sRuns != null)
+				sRuns.deleteFiles();
+			if (aRuns != null)
+				aRuns.deleteFiles();
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a result row by row and computes its digest. If
+	 * <code>spill</code> is true and the column count matches, rows are
+	 * collected in sorted runs. Full runs are written to temporary files.
+	 *
+	 * @param expectedColumnCount
+	 *            Column count of the other result or -1 if not known yet.
+	 */
+	private SortedRuns readResult(String statement, boolean spill,
+			int expectedColumnCount) throws SQLException,
+			ClassNotFoundException, IOException {
+		SortedRuns result = new SortedRuns();
+		MessageDigest digest = createDigest();
+		ResultCursor cursor = dbAccessor.openCursor(statement, 0);
+		boolean completed = false;
+		try {
+			result.columnNames = new ArrayList<String>(cursor.getColumnNames());
+			spill = spill && (expectedColumnCount == -1
+					|| expectedColumnCount == result.columnNames.size());
+			List<String> row;
+			while ((row = cursor.nextRow()) != null) {
+				for (String value : row) {
+					if (value == null) {
+						digest.update((byte) 0);
+						result.nullFound = true;
+					} else {
+						byte[] bytes = value.getBytes("UTF-8");
+						digest.update((byte) 1);
+						digest.update(toBytes(bytes.length));
+						digest.update(bytes);
+					}
+				}
+				if (spill) {
+					result.buffer.add(row);
+					if (result.buffer.size() >= runSize)
+						result.writeRun();
+				}
+			}
+			result.rowCount = cursor.getRowCount();
+			Collections.sort(result.buffer, ROW_ORDER);
+			completed = true;
+		} finally {
+			cursor.close();
+			if (!completed)
+				result.deleteFiles();
+		}
+		result.digest = digest.digest();
+		return result;
+	}
+
+	/**
+	 * Merges the sorted runs of both results and counts the rows which
+	 * occur more often in one of them.
+	 */
+	private void mergeCompare(SortedRuns aRuns, SortedRuns sRuns,
+			ResultComparison result) throws IOException {
+		int missing = 0;
+		int extra = 0;
+		MergedRows aRows = new MergedRows(aRuns);
+		MergedRows sRows = new MergedRows(sRuns);
+		try {
+			List<String> aRow = aRows.next();
+			List<String> sRow = sRows.next();
+			while (aRow != null || sRow != null) {
+				int comp;
+				if (aRow == null)
+					comp = 1;
+				else if (sRow == null)
+					comp = -1;
+				else
+					comp = ROW_ORDER.compare(aRow, sRow);
+				if (comp <= 0) {
+					if (comp < 0)
+						extra++;
+					aRow = aRows.next();
+				}
+				if (comp >= 0) {
+					if (comp > 0)
+						missing++;
+					sRow = sRows.next();
+				}
+			}
+		} finally {
+			aRows.close();
+			sRows.close();
+		}
+		result.setDifference(missing, extra);
+	}
+
+	/** Lets the database server count the rows missing on each side. */
+	private void databaseCompare(String answer, String solution,
+			ResultComparison result) throws SQLException,
+			ClassNotFoundException {
+		String aQuery = toSubQuery(answer);
+		String sQuery = toSubQuery(solution);
+		int missing = countDifference(sQuery, aQuery);
+		int extra = countDifference(aQuery, sQuery);
+		result.setDifference(missing, extra);
+	}
+
+	/** Counts the rows of the first query result not found in the second. */
+	private int countDifference(String query1, String query2)
+			throws SQLException, ClassNotFoundException {
+		// line breaks terminate trailing line comments
+		String query = "SELECT COUNT(*) FROM (SELECT * FROM (" + query1
+				+ "\n) q1 " + exceptOperator + " SELECT * FROM (" + query2
+				+ "\n) q2) d";
+		List<List<String>> table = dbAccessor.executeStatement(query);
+		return Integer.parseInt(table.get(1).get(0).trim());
+	}
+
+	/**
+	 * Checks whether all column names are non-empty and distinct, as
+	 * required for columns of derived tables.
+	 */
+	private static boolean hasUniqueNames(List<String> columnNames) {
+		Set<String> names = new HashSet<String>();
+		for (String name : columnNames)
+			if (name == null || name.trim().isEmpty()
+					|| !names.add(name.trim().toLowerCase()))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Prepares a statement for use as sub-query. A terminating semicolon and
+	 * a trailing top-level <code>ORDER BY</code> clause, which is not allowed
+	 * in sub-queries, are removed. Returns null if the statement restricts
+	 * its rows by <code>LIMIT</code>, <code>OFFSET</code>, <code>FETCH</code>
+	 * or <code>TOP</code>, because the selected rows depend on the order
+	 * then. Quoted text and comments are skipped while scanning.
+	 */
+	static String toSubQuery(String statement) {
+		String lower = statement.toLowerCase();
+		int length = lower.length();
+		int depth = 0;
+		int end = length;
+		int orderByPos = -1;
+		int i = 0;
+		while (i < length) {
+			char c = lower.charAt(i);
+			if (c == '\'' || c == '"' || c == '`' || c == '[') {
+				int close = lower.indexOf(c == '[' ? ']' : c, i + 1);
+				i = (close == -1) ? length : close + 1;
+			} else if (lower.startsWith("--", i)) {
+				int close = lower.indexOf('\n', i);
+				i = (close == -1) ? length : close + 1;
+			} else if (lower.startsWith("/*", i)) {
+				int close = lower.indexOf("*/", i + 2);
+				i = (close == -1) ? length : close + 2;
+			} else if (isWordChar(c)) {
+				int wordEnd = i + 1;
+				while (wordEnd < length && isWordChar(lower.charAt(wordEnd)))
+					wordEnd++;
+				if (depth == 0) {
+					String word = lower.substring(i, wordEnd);
+					if (RESTRICTING_WORDS.contains(word))
+						return null;
+					if (word.equals("order") && lower.substring(wordEnd)
+							.trim().startsWith("by"))
+						orderByPos = i;
+				}
+				i = wordEnd;
+			} else if (c == ';' && depth == 0) {
+				end = i;
+				break;
+			} else {
+				if (c == '(')
+					depth++;
+				else if (c == ')')
+					depth--;
+				i++;
+			}
+		}
+		if (orderByPos != -1)
+			end = orderByPos;
+		return statement.substring(0, end).trim();
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '@'
+				|| c == '#' || c == '$';
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static byte[] toBytes(int value) {
+		return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16),
+				(byte) (value >>> 8), (byte) value };
+	}
+
+	/** Information collected while reading one result. */
+	private static class SortedRuns {
+		List<String> columnNames;
+		int rowCount;
+		byte[] digest;
+		boolean nullFound;
+		/** Temporary files, each containing a sorted run. */
+		List<File> runFiles = new ArrayList<File>();
+		/** Rows of the last run, which has not been written to a file. */
+		List<List<String>> buffer = new ArrayList<List<String>>();
+
+		/** Sorts the buffered rows and writes them to a temporary file. */
+		void writeRun() throws IOException {
+			Collections.sort(buffer, ROW_ORDER);
+			File file = File.createTempFile("sqltrainer-run", ".tmp");
+			file.deleteOnExit();
+			runFiles.add(file);
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				for (List<String> row : buffer) {
+					out.writeInt(row.size());
+					for (String value : row) {
+						if (value == null) {
+							out.writeInt(-1);
+						} else {
+							byte[] bytes = value.getBytes("UTF-8");
+							out.writeInt(bytes.length);
+							out.write(bytes);
+						}
+					}
+				}
+			} finally {
+				out.close();
+			}
+			buffer.clear();
+		}
+
+		void deleteFiles() {
+			for (File file : runFiles)
+				file.delete();
+			runFiles.clear();
+		}
+	}
+
+	/** Sorted sequence of rows, read from a file or from memory. */
+	private static class RowSource {
+		private DataInputStream in;
+		private final List<List<String>> rows;
+		private int nextRowIdx;
+		List<String> head;
+
+		RowSource(File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			rows = null;
+		}
+
+		RowSource(List<List<String>> rows) {
+			this.rows = rows;
+		}
+
+		/** Reads the next row into head. Returns false at the end. */
+		boolean advance() throws IOException {
+			head = null;
+			if (rows != null) {
+				if (nextRowIdx < rows.size())
+					head = rows.get(nextRowIdx++);
+			} else if (in != null) {
+				try {
+					int colCount = in.readInt();
+					head = new ArrayList<String>(colCount);
+					for (int i = 0; i < colCount; i++) {
+						int length = in.readInt();
+						if (length < 0) {
+							head.add(null);
+						} else {
+							byte[] bytes = new byte[length];
+							in.readFully(bytes);
+							head.add(new String(bytes, "UTF-8"));
+						}
+					}
+				} catch (EOFException e) {
+					head = null;
+					close();
+				}
+			}
+			return head != null;
+		}
+
+		void close() throws IOException {
+			if (in != null) {
+				in.close();
+				in = null;
+			}
+		}
+	}
+
+	/** Merges the sorted runs of one result into one sorted sequence. */
+	private static class MergedRows {
+		private final PriorityQueue<RowSource> sources;
+
+		MergedRows(SortedRuns runs) throws IOException {
+			sources = new PriorityQueue<RowSource>(runs.runFiles.size() + 1,
+					new Comparator<RowSource>() {
+						@Override
+						public int compare(RowSource s1, RowSource s2) {
+							return ROW_ORDER.compare(s1.head, s2.head);
+						}
+					});
+			try {
+				for (File file : runs.runFiles)
+					add(new RowSource(file));
+				add(new RowSource(runs.buffer));
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		private void add(RowSource source) throws IOException {
+			if (source.advance())
+				sources.add(source);
+			else
+				source.close();
+		}
+
+		/** Returns the next row in sort order or null at the end. */
+		List<String> next() throws IOException {
+			List<String> result = null;
+			RowSource source = sources.poll();
+			if (source != null) {
+				result = source.head;
+				add(source);
+			}
+			return result;
+		}
+
+		void close() throws IOException {
+			for (RowSource source : sources)
+				source.close();
+			sources.clear();
+		}
+	}
+}
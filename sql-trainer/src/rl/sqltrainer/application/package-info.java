@@ -1,6 +1,6 @@
-
-/**
- * Contains application classes which provide a user interface independent
- * API for the SQLTrainer.
- */
+
+/**
+ * Contains application classes which provide a user interface independent
+ * API for the SQLTrainer.
+ */
 package rl.sqltrainer.application;
\ No newline at end of file
@@ -1,52 +1,81 @@
-/*
- * Copyright (C) 2008-2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.sqltrainer.domain;
-
-import java.io.File;
-
-/**
- * Maintains all those properties of a database, which are needed by the
- * SQLTrainer to access it properly.
- * @author Ruediger Lunde
- */
-public class Database {
-	/** Logical name of the database. */
-	private String logicalName;
-	/**
-	 * Server-side physical name of the database. For administrative reasons,
-	 * it sometimes might be convenient, to put more than one small training
-	 * database into the same physical database.
-	 */
-	private String physicalName;
-	/** File containing a schema image of the database. */
-	private File schema;
-	/** File containing a textual description of the database. */
-	private File description;
-
-	/** Standard constructor. */
-	public Database(String logName, String physName, File schema, File desc) {
-		this.logicalName = logName;
-		this.physicalName = physName;
-		this.schema = schema;
-		this.description = desc;
-	}
-	
-	/** Returns the logical name of the database. */
-	public String getLogicalName() {
-		return logicalName;
-	}
-	/** Returns the physical (server-side) name of the database. */
-	public String getPhysicalName() {
-		return physicalName;
-	}
-	/** Returns a File for accessing a corresponding schema image or null. */
-	public File getSchema() {
-		return schema;
-	}
-	/** Returns a File for accessing a corresponding description text or null. */
-	public File getDescription() {
-		return description;
-	}
-}
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.domain;
+
+import java.io.File;
+
+/**
+ * Maintains all those properties of a database, which are needed by the
+ * SQLTrainer to access it properly.
+ * @author Ruediger Lunde
+ */
+public class Database {
+	/**
+	 * Defines how answer and solution results are compared: in memory, by
+	 * merging sorted runs stored in temporary files, or by the database
+	 * server itself.
+	 */
+	public enum ComparisonMode {
+		MEMORY, EXTERNAL, DATABASE
+	}
+
+	/** Logical name of the database. */
+	private String logicalName;
+	/**
+	 * Server-side physical name of the database. For administrative reasons,
+	 * it sometimes might be convenient, to put more than one small training
+	 * database into the same physical database.
+	 */
+	private String physicalName;
+	/** File containing a schema image of the database. */
+	private File schema;
+	/** File containing a textual description of the database. */
+	private File description;
+	/** Time in seconds, a query may run on this database (0 means no limit). */
+	private int queryTimeout;
+	/** Comparison mode for feedback requests on this database. */
+	private ComparisonMode comparisonMode = ComparisonMode.MEMORY;
+
+	/** Standard constructor. */
+	public Database(String logName, String physName, File schema, File desc) {
+		this.logicalName = logName;
+		this.physicalName = physName;
+		this.schema = schema;
+		this.description = desc;
+	}
+	
+	/** Returns the logical name of the database. */
+	public String getLogicalName() {
+		return logicalName;
+	}
+	/** Returns the physical (server-side) name of the database. */
+	public String getPhysicalName() {
+		return physicalName;
+	}
+	/** Returns a File for accessing a corresponding schema image or null. */
+	public File getSchema() {
+		return schema;
+	}
+	/** Returns a File for accessing a corresponding description text or null. */
+	public File getDescription() {
+		return description;
+	}
+	/** Returns the query timeout in seconds, 0 means no limit. */
+	public int getQueryTimeout() {
+		return queryTimeout;
+	}
+	/** Sets the query timeout in seconds, 0 means no limit. */
+	public void setQueryTimeout(int seconds) {
+		this.queryTimeout = seconds;
+	}
+	/** Returns the mode used to compare answer and solution results. */
+	public ComparisonMode getComparisonMode() {
+		return comparisonMode;
+	}
+	/** Sets the mode used to compare answer and solution results. */
+	public void setComparisonMode(ComparisonMode mode) {
+		this.comparisonMode = mode;
+	}
+}
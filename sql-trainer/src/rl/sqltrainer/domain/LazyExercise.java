@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.domain;
+
+import rl.util.exceptions.PersistenceException;
+
+/**
+ * Exercise whose question and solution texts are loaded on first access.
+ * ID, type, theme, and answer are available immediately, so that exercise
+ * labels can be created and the integrity of answers can be checked without
+ * loading the complete exercise set.
+ * @author Ruediger Lunde
+ */
+public class LazyExercise extends Exercise {
+
+	/** Provides the complete data of an exercise on demand. */
+	public static interface Loader {
+		/**
+		 * Loads the exercise with the specified index. Only question and
+		 * solution of the result are used.
+		 */
+		Exercise loadExercise(int exIdx) throws PersistenceException;
+	}
+
+	/** Source of the exercise texts, null after loading. */
+	private Loader loader;
+	private int exIdx;
+
+	/** Standard constructor. */
+	public LazyExercise(String id, Type type, String theme, String answer,
+			Loader loader, int exIdx) {
+		super(id, type, theme, "");
+		setAnswer(answer);
+		this.loader = loader;
+		this.exIdx = exIdx;
+	}
+
+	/** Checks whether question and solution have already been loaded. */
+	public synchronized boolean isLoaded() {
+		return loader == null;
+	}
+
+	@Override
+	public void setData(String id, Type type, String theme, String question) {
+		load();
+		super.setData(id, type, theme, question);
+	}
+
+	@Override
+	public String getQuestion() {
+		load();
+		return super.getQuestion();
+	}
+
+	@Override
+	public void setSolution(String solution) {
+		load();
+		super.setSolution(solution);
+	}
+
+	@Override
+	public String getSolution() {
+		load();
+		return super.getSolution();
+	}
+
+	/**
+	 * Replaces the placeholders for question and solution by the texts
+	 * provided by the loader.
+	 * @throws IllegalStateException if the exercise could not be loaded.
+	 */
+	private synchronized void load() {
+		if (loader != null) {
+			try {
+				Exercise ex = loader.loadExercise(exIdx);
+				loader = null;
+				super.setData(getID(), getType(), getTheme(), ex.getQuestion());
+				super.setSolution(ex.getSolution());
+			} catch (PersistenceException e) {
+				throw new IllegalStateException("Loading exercise "
+						+ getID() + " failed.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,986 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.domain;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result table of a query, which is stored column by column. Each column has
+ * a declared type, which is derived from the result set meta data. Numeric
+ * values are stored in primitive arrays and formatted only when they are
+ * requested, typically for rendering the visible cells. Columns of type
+ * text, whose values all happen to be integer numbers, are stored in the
+ * same way. Other columns store codes referring to a string dictionary,
+ * which is shared by all columns of the table, as long as the number of
+ * distinct values of a column is small. Columns with many distinct values
+ * store the characters of all values in one array. If a value does not fit
+ * into the representation of its column, the column is converted to a more
+ * general representation. Compared to a list of rows, this saves the row
+ * objects and most string objects.
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ *
+ * @author Ruediger Lunde
+ */
+public class ResultTable {
+	/** Declared column types. */
+	public static enum ColumnType {
+		/** Integer numbers, which fit into a long. */
+		INTEGER,
+		/** Decimal numbers with a fixed number of fraction digits. */
+		DECIMAL,
+		/** Single precision floating point numbers. */
+		REAL,
+		/** Double precision floating point numbers. */
+		DOUBLE,
+		/** Everything else, represented by strings. */
+		TEXT
+	}
+
+	/** Maximal number of dictionary entries a column may introduce. */
+	private static final int MAX_DISTINCT_VALUES = 4096;
+	private static final int INITIAL_CAPACITY = 16;
+	/** Dictionary values are stored in chunks of 2^CHUNK_BITS values. */
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final long[] POWERS_OF_TEN = new long[19];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+	}
+
+	private List<String> columnNames = new ArrayList<String>();
+	private final List<ColumnType> types = new ArrayList<ColumnType>();
+	private final List<Integer> scales = new ArrayList<Integer>();
+	private Column[] columns = new Column[0];
+	private int rowCount;
+	/**
+	 * Values of all dictionary columns, the index is the code. The values are
+	 * stored in chunks, which are never reallocated, so that views can share
+	 * them while values are added.
+	 */
+	private String[][] dictionary = new String[0][];
+	private int dictionarySize;
+	private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+	/** Creates a table without columns. */
+	public ResultTable() {
+	}
+
+	/**
+	 * Creates a table with text columns from the list representation.
+	 *
+	 * @param data
+	 *            Column names followed by rows, possibly empty.
+	 */
+	public ResultTable(List<List<String>> data) {
+		if (!data.isEmpty()) {
+			setColumnNames(data.get(0));
+			addRows(data.subList(1, data.size()));
+		}
+	}
+
+	/** Removes all columns and rows. */
+	public void clear() {
+		setColumnNames(Collections.<String> emptyList());
+	}
+
+	/**
+	 * Replaces the table by an empty table with the specified text columns.
+	 */
+	public void setColumnNames(List<String> names) {
+		columnNames = new ArrayList<String>();
+		types.clear();
+		scales.clear();
+		columns = new Column[0];
+		rowCount = 0;
+		dictionary = new String[0][];
+		dictionarySize = 0;
+		codes.clear();
+		for (String name : names)
+			addColumn(name, ColumnType.TEXT, 0);
+	}
+
+	/**
+	 * Replaces the table by an empty table with the same columns as the
+	 * given table.
+	 */
+	public void setColumns(ResultTable table) {
+		setColumnNames(Collections.<String> emptyList());
+		for (int i = 0; i < table.getColumnCount(); i++)
+			addColumn(table.columnNames.get(i), table.types.get(i),
+					table.scales.get(i));
+	}
+
+	/**
+	 * Adds a column to a table without rows.
+	 *
+	 * @param scale
+	 *            Number of fraction digits, only used for decimal columns.
+	 */
+	public void addColumn(String name, ColumnType type, int scale) {
+		if (rowCount > 0)
+			throw new IllegalStateException("Table already contains rows.");
+		columnNames.add(name);
+		types.add(type);
+		scales.add(scale);
+		columns = Arrays.copyOf(columns, columns.length + 1);
+		switch (type) {
+		case INTEGER:
+		case TEXT:
+			columns[columns.length - 1] = new NumberColumn(0);
+			break;
+		case DECIMAL:
+			columns[columns.length - 1] = new NumberColumn(Math.max(0, scale));
+			break;
+		default:
+			columns[columns.length - 1] = new DoubleColumn(type);
+		}
+	}
+
+	public List<String> getColumnNames() {
+		return Collections.unmodifiableList(columnNames);
+	}
+
+	public ColumnType getColumnType(int col) {
+		return types.get(col);
+	}
+
+	/** Returns the number of fraction digits declared for the column. */
+	public int getColumnScale(int col) {
+		return scales.get(col);
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/** Appends a row. The number of values must match the number of columns. */
+	public void addRow(List<String> row) {
+		if (row.size() != columns.length)
+			throw new IllegalArgumentException("Row with " + row.size()
+					+ " values does not match " + columns.length + " columns.");
+		for (int i = 0; i < columns.length; i++)
+			addString(i, row.get(i));
+		endRow();
+	}
+
+	/** Appends all rows of the list. */
+	public void addRows(List<List<String>> rows) {
+		for (List<String> row : rows)
+			addRow(row);
+	}
+
+	/** Appends all rows of a table with the same number of columns. */
+	public void addRows(ResultTable table) {
+		if (table.getColumnCount() != columns.length)
+			throw new IllegalArgumentException("Column counts do not match.");
+		for (int row = 0; row < table.rowCount; row++) {
+			for (int i = 0; i < columns.length; i++)
+				table.columns[i].copyTo(row, this, i);
+			endRow();
+		}
+	}
+
+	/**
+	 * Sets the value of the specified column in the row under construction.
+	 * Rows are constructed by setting the values of all columns from left to
+	 * right and calling {@link #endRow()} afterwards.
+	 */
+	public void addString(int col, String value) {
+		while (!columns[col].add(value))
+			columns[col] = columns[col].convert();
+	}
+
+	/**
+	 * Sets a value in the row under construction, which is given in the
+	 * representation returned by {@link #getValue(int, int)}. In contrast to
+	 * {@link #addString(int, String)}, values of floating point columns are
+	 * parsed, so that the column keeps its type.
+	 */
+	public void addFormatted(int col, String value) {
+		ColumnType type = types.get(col);
+		if (value != null
+				&& (type == ColumnType.DOUBLE || type == ColumnType.REAL)) {
+			try {
+				addDouble(col, type == ColumnType.REAL ? Float
+						.parseFloat(value) : Double.parseDouble(value));
+				return;
+			} catch (NumberFormatException e) {
+				// keep the text
+			}
+		}
+		addString(col, value);
+	}
+
+	/** Sets a null value in the row under construction. */
+	public void addNull(int col) {
+		addString(col, null);
+	}
+
+	/** Sets an integer value in the row under construction. */
+	public void addLong(int col, long value) {
+		if (!columns[col].addDecimal(value, 0))
+			addString(col, Long.toString(value));
+	}
+
+	/** Sets a decimal value (possibly null) in the row under construction. */
+	public void addDecimal(int col, BigDecimal value) {
+		if (value == null)
+			addNull(col);
+		else if (value.unscaledValue().bitLength() < 64)
+			addDecimal(col, value.unscaledValue().longValue(), value.scale());
+		else
+			addString(col, value.toPlainString());
+	}
+
+	/** Sets a floating point value in the row under construction. */
+	public void addDouble(int col, double value) {
+		if (!columns[col].addDouble(value))
+			addString(col, formatDouble(value, types.get(col)));
+	}
+
+	/**
+	 * Completes the row under construction.
+	 *
+	 * @throws IllegalStateException
+	 *             if the values of some columns are missing.
+	 */
+	public void endRow() {
+		for (Column column : columns)
+			if (column.size != rowCount + 1)
+				throw new IllegalStateException("Row " + rowCount
+						+ " is incomplete.");
+		rowCount++;
+	}
+
+	/** Returns the string representation of a value, possibly null. */
+	public String getValue(int row, int col) {
+		if (row < 0 || row >= rowCount)
+			throw new IndexOutOfBoundsException("Row " + row);
+		return columns[col].get(row);
+	}
+
+	/** Returns a copy of the specified row. */
+	public List<String> getRow(int row) {
+		List<String> result = new ArrayList<String>(columns.length);
+		for (int i = 0; i < columns.length; i++)
+			result.add(getValue(row, i));
+		return result;
+	}
+
+	/**
+	 * Compares two values of the specified column. Numeric columns are
+	 * compared by value, all other columns by their string representations.
+	 * Null values are smaller than all other values.
+	 */
+	public int compareValues(int col, int row1, int row2) {
+		Column column = columns[col];
+		boolean null1 = column.isNull(row1);
+		boolean null2 = column.isNull(row2);
+		if (null1 || null2)
+			return null1 == null2 ? 0 : (null1 ? -1 : 1);
+		if (types.get(col) != ColumnType.TEXT) {
+			if (column instanceof NumberColumn) {
+				long[] values = ((NumberColumn) column).values;
+				return Long.compare(values[row1], values[row2]);
+			} else if (column instanceof DoubleColumn) {
+				double[] values = ((DoubleColumn) column).values;
+				return Double.compare(values[row1], values[row2]);
+			}
+		}
+		return column.compareText(row1, row2);
+	}
+
+	/**
+	 * Returns a read-only table, which shares the values of all rows added so
+	 * far with this table. Rows added to this table later are not visible in
+	 * the view. The view can be read by another thread while rows are added
+	 * to this table, provided that it was created before the thread was
+	 * started or before the view was handed over. Values are not copied, so
+	 * creating a view is cheap.
+	 */
+	public ResultTable createView() {
+		ResultTable result = new ResultTable();
+		result.columnNames.addAll(columnNames);
+		result.types.addAll(types);
+		result.scales.addAll(scales);
+		result.dictionary = dictionary;
+		result.dictionarySize = dictionarySize;
+		result.columns = new Column[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			Column column = columns[i].createView(result);
+			column.size = rowCount;
+			column.nullCount = columns[i].nullCount;
+			result.columns[i] = column;
+		}
+		result.rowCount = rowCount;
+		return result;
+	}
+
+	/** Checks whether the table contains a null value. */
+	public boolean containsNull() {
+		for (Column column : columns)
+			if (column.nullCount > 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the table in the list representation: Column names followed
+	 * by rows.
+	 */
+	public List<List<String>> toList() {
+		List<List<String>> result = new ArrayList<List<String>>(rowCount + 1);
+		result.add(new ArrayList<String>(columnNames));
+		for (int i = 0; i < rowCount; i++)
+			result.add(getRow(i));
+		return result;
+	}
+
+	/** Estimates the memory in bytes needed to store the table. */
+	public long estimateSize() {
+		long result = 100;
+		for (Column column : columns)
+			result += column.estimateSize();
+		for (int code = 0; code < dictionarySize; code++)
+			result += 100 + 2 * getDictionaryValue(code).length();
+		return result;
+	}
+
+	private void addDecimal(int col, long unscaled, int scale) {
+		if (!columns[col].addDecimal(unscaled, scale))
+			addString(col, formatDecimal(unscaled, scale));
+	}
+
+	/** Returns the code of a dictionary value or -1 if there is none. */
+	private int getCode(String value) {
+		Integer code = codes.get(value);
+		return code != null ? code : -1;
+	}
+
+	/** Adds a value to the dictionary and returns its new code. */
+	private int addDictionaryValue(String value) {
+		int code = dictionarySize;
+		int chunk = code >> CHUNK_BITS;
+		if (chunk == dictionary.length) {
+			// the old array stays valid for views
+			dictionary = Arrays.copyOf(dictionary, chunk + 1);
+			dictionary[chunk] = new String[CHUNK_SIZE];
+		}
+		dictionary[chunk][code & (CHUNK_SIZE - 1)] = value;
+		dictionarySize++;
+		codes.put(value, code);
+		return code;
+	}
+
+	private String getDictionaryValue(int code) {
+		return dictionary[code >> CHUNK_BITS][code & (CHUNK_SIZE - 1)];
+	}
+
+	private static String formatDecimal(long unscaled, int scale) {
+		return scale == 0 ? Long.toString(unscaled) : BigDecimal.valueOf(
+				unscaled, scale).toPlainString();
+	}
+
+	/**
+	 * Formats floating point numbers in plain notation without trailing
+	 * zeros, as most database servers do.
+	 */
+	private static String formatDouble(double value, ColumnType type) {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return Double.toString(value);
+		BigDecimal dec = (type == ColumnType.REAL) ? new BigDecimal(Float
+				.toString((float) value)) : BigDecimal.valueOf(value);
+		if (dec.signum() == 0)
+			return "0";
+		return dec.stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * Checks whether the value multiplied by the specified power of ten fits
+	 * into a long.
+	 */
+	private static boolean canScale(long value, int digits) {
+		if (digits >= POWERS_OF_TEN.length)
+			return value == 0;
+		long limit = Long.MAX_VALUE / POWERS_OF_TEN[digits];
+		return value <= limit && value >= -limit;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// inner classes
+
+	/**
+	 * Compares rows of two tables with the same number of columns. Columns,
+	 * which are numeric in both tables, are compared by value, so that
+	 * formatting differences do not matter. Floating point columns are
+	 * compared by value if both have the same precision. All other columns
+	 * are compared by their string representations. Values are never
+	 * formatted for comparing numeric columns.
+	 */
+	public static class RowMatcher {
+		private static final int TEXT = 0;
+		private static final int NUMBER = 1;
+		private static final int FLOATING_POINT = 2;
+		private final int[] modes;
+
+		/** Analyzes the column types of the two tables. */
+		public RowMatcher(ResultTable table1, ResultTable table2) {
+			if (table1.getColumnCount() != table2.getColumnCount())
+				throw new IllegalArgumentException("Column counts do not match.");
+			modes = new int[table1.getColumnCount()];
+			for (int i = 0; i < modes.length; i++) {
+				ColumnType type1 = table1.types.get(i);
+				ColumnType type2 = table2.types.get(i);
+				Column col1 = table1.columns[i];
+				Column col2 = table2.columns[i];
+				if (col1 instanceof NumberColumn && col2 instanceof NumberColumn
+						&& type1 != ColumnType.TEXT && type2 != ColumnType.TEXT)
+					modes[i] = NUMBER;
+				else if (col1 instanceof DoubleColumn
+						&& col2 instanceof DoubleColumn && type1 == type2)
+					modes[i] = FLOATING_POINT;
+			}
+		}
+
+		/** Computes a hash code, which is consistent with the row equality. */
+		public int hashCode(ResultTable table, int row) {
+			int result = 1;
+			for (int i = 0; i < modes.length; i++) {
+				Column col = table.columns[i];
+				int hash = 0;
+				if (col.isNull(row))
+					hash = 0;
+				else if (modes[i] == NUMBER)
+					hash = ((NumberColumn) col).hashCode(row);
+				else if (modes[i] == FLOATING_POINT)
+					hash = ((DoubleColumn) col).hashCode(row);
+				else
+					hash = col.textHashCode(row);
+				result = 31 * result + hash;
+			}
+			return result;
+		}
+
+		/** Compares a row of one table with a row of another (or the same). */
+		public boolean equals(ResultTable table1, int row1, ResultTable table2,
+				int row2) {
+			for (int i = 0; i < modes.length; i++) {
+				Column col1 = table1.columns[i];
+				Column col2 = table2.columns[i];
+				boolean null1 = col1.isNull(row1);
+				if (null1 || col2.isNull(row2)) {
+					if (null1 != col2.isNull(row2))
+						return false;
+				} else if (modes[i] == NUMBER) {
+					if (!((NumberColumn) col1).valueEquals(row1,
+							(NumberColumn) col2, row2))
+						return false;
+				} else if (modes[i] == FLOATING_POINT) {
+					double v1 = ((DoubleColumn) col1).values[row1];
+					double v2 = ((DoubleColumn) col2).values[row2];
+					if (v1 != v2 && !(Double.isNaN(v1) && Double.isNaN(v2)))
+						return false;
+				} else if (!col1.textEquals(row1, col2, row2)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/** Storage of the values of one column. */
+	private abstract class Column {
+		/** Number of stored values. */
+		int size;
+		int nullCount;
+
+		/**
+		 * Appends a value, possibly null. Returns false if the value cannot
+		 * be represented by this column type.
+		 */
+		abstract boolean add(String value);
+
+		/** Appends a decimal number, if it can be represented. */
+		boolean addDecimal(long unscaled, int scale) {
+			return false;
+		}
+
+		/** Appends a floating point number, if it can be represented. */
+		boolean addDouble(double value) {
+			return false;
+		}
+
+		abstract String get(int row);
+
+		abstract boolean isNull(int row);
+
+		/**
+		 * Returns a column with the same values, which uses a more general
+		 * representation.
+		 */
+		Column convert() {
+			Column result = new DictionaryColumn(size);
+			for (int i = 0; i < size; i++)
+				result.add(get(i));
+			return result;
+		}
+
+		/**
+		 * Returns a column of the view, which shares the value arrays with
+		 * this column. Values are only appended to this column after
+		 * the shared part, or to new arrays.
+		 */
+		abstract Column createView(ResultTable view);
+
+		/** Appends the value of the specified row to a column of the table. */
+		void copyTo(int row, ResultTable table, int col) {
+			table.addString(col, get(row));
+		}
+
+		/** Returns the hash code of the string representation. */
+		int textHashCode(int row) {
+			String value = get(row);
+			return value != null ? value.hashCode() : 0;
+		}
+
+		/** Compares the string representations of two non-null values. */
+		int compareText(int row1, int row2) {
+			return get(row1).compareTo(get(row2));
+		}
+
+		/** Compares the string representations of two values. */
+		boolean textEquals(int row, Column other, int otherRow) {
+			String value = get(row);
+			return value != null ? value.equals(other.get(otherRow)) : other
+					.isNull(otherRow);
+		}
+
+		abstract long estimateSize();
+	}
+
+	/**
+	 * Stores decimal numbers as unscaled values with a fixed number of
+	 * fraction digits. With zero fraction digits, integer numbers are
+	 * stored.
+	 */
+	private class NumberColumn extends Column {
+		private final int scale;
+		private long[] values = new long[INITIAL_CAPACITY];
+		private boolean[] nulls = new boolean[INITIAL_CAPACITY];
+
+		NumberColumn(int scale) {
+			this.scale = scale;
+		}
+
+		@Override
+		boolean add(String value) {
+			if (value == null)
+				return append(0, true);
+			if (scale == 0) {
+				if (!isInteger(value))
+					return false;
+				try {
+					return append(Long.parseLong(value), false);
+				} catch (NumberFormatException e) {
+					return false; // too many digits
+				}
+			}
+			try {
+				BigDecimal dec = new BigDecimal(value);
+				return dec.scale() == scale
+						&& dec.unscaledValue().bitLength() < 64
+						&& dec.toPlainString().equals(value)
+						&& append(dec.unscaledValue().longValue(), false);
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+
+		@Override
+		boolean addDecimal(long unscaled, int valueScale) {
+			while (valueScale > scale && unscaled % 10 == 0) {
+				unscaled /= 10;
+				valueScale--;
+			}
+			int digits = scale - valueScale;
+			return digits >= 0 && canScale(unscaled, digits)
+					&& append(unscaled * POWERS_OF_TEN[Math.min(digits, 18)],
+							false);
+		}
+
+		private boolean append(long value, boolean isNull) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, 2 * size);
+				nulls = Arrays.copyOf(nulls, 2 * size);
+			}
+			values[size] = value;
+			nulls[size++] = isNull;
+			if (isNull)
+				nullCount++;
+			return true;
+		}
+
+		@Override
+		String get(int row) {
+			return nulls[row] ? null : formatDecimal(values[row], scale);
+		}
+
+		@Override
+		Column createView(ResultTable view) {
+			NumberColumn result = view.new NumberColumn(scale);
+			result.values = values;
+			result.nulls = nulls;
+			return result;
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return nulls[row];
+		}
+
+		@Override
+		void copyTo(int row, ResultTable table, int col) {
+			if (nulls[row])
+				table.addNull(col);
+			else
+				table.addDecimal(col, values[row], scale);
+		}
+
+		/** Hash code of the value without trailing zeros. */
+		int hashCode(int row) {
+			long value = values[row];
+			int s = scale;
+			while (s > 0 && value % 10 == 0) {
+				value /= 10;
+				s--;
+			}
+			return 31 * (int) (value ^ (value >>> 32)) + s;
+		}
+
+		/** Compares two non-null values numerically. */
+		boolean valueEquals(int row, NumberColumn other, int otherRow) {
+			long v1 = values[row];
+			long v2 = other.values[otherRow];
+			if (scale < other.scale) {
+				int digits = other.scale - scale;
+				return canScale(v1, digits)
+						&& v1 * POWERS_OF_TEN[Math.min(digits, 18)] == v2;
+			} else {
+				int digits = scale - other.scale;
+				return canScale(v2, digits)
+						&& v2 * POWERS_OF_TEN[Math.min(digits, 18)] == v1;
+			}
+		}
+
+		/**
+		 * Checks whether the string is an integer number which is written
+		 * exactly like <code>Long.toString</code> would write it.
+		 */
+		private boolean isInteger(String value) {
+			int length = value.length();
+			int start = length > 1 && value.charAt(0) == '-' ? 1 : 0;
+			if (length == start || length - start > 19
+					|| value.charAt(start) == '0' && length > start + 1
+					|| value.equals("-0"))
+				return false;
+			for (int i = start; i < length; i++) {
+				char c = value.charAt(i);
+				if (c < '0' || c > '9')
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		long estimateSize() {
+			return 9L * values.length;
+		}
+	}
+
+	/** Stores floating point numbers. */
+	private class DoubleColumn extends Column {
+		private final ColumnType type;
+		private double[] values = new double[INITIAL_CAPACITY];
+		private boolean[] nulls = new boolean[INITIAL_CAPACITY];
+
+		DoubleColumn(ColumnType type) {
+			this.type = type;
+		}
+
+		@Override
+		boolean add(String value) {
+			return value == null && append(0, true);
+		}
+
+		@Override
+		boolean addDouble(double value) {
+			return append(value, false);
+		}
+
+		private boolean append(double value, boolean isNull) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, 2 * size);
+				nulls = Arrays.copyOf(nulls, 2 * size);
+			}
+			values[size] = value;
+			nulls[size++] = isNull;
+			if (isNull)
+				nullCount++;
+			return true;
+		}
+
+		@Override
+		String get(int row) {
+			return nulls[row] ? null : formatDouble(values[row], type);
+		}
+
+		@Override
+		Column createView(ResultTable view) {
+			DoubleColumn result = view.new DoubleColumn(type);
+			result.values = values;
+			result.nulls = nulls;
+			return result;
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return nulls[row];
+		}
+
+		@Override
+		void copyTo(int row, ResultTable table, int col) {
+			if (nulls[row])
+				table.addNull(col);
+			else
+				table.addDouble(col, values[row]);
+		}
+
+		/** Hash code, which does not distinguish 0 and -0. */
+		int hashCode(int row) {
+			double value = values[row];
+			if (value == 0)
+				return 0;
+			long bits = Double.doubleToLongBits(value);
+			return (int) (bits ^ (bits >>> 32));
+		}
+
+		@Override
+		long estimateSize() {
+			return 9L * values.length;
+		}
+	}
+
+	/** Stores codes of the shared dictionary, -1 represents null. */
+	private class DictionaryColumn extends Column {
+		private int[] values;
+		private int distinctValues;
+
+		DictionaryColumn(int capacity) {
+			values = new int[Math.max(capacity, INITIAL_CAPACITY)];
+		}
+
+		@Override
+		boolean add(String value) {
+			int code = -1;
+			if (value != null) {
+				code = getCode(value);
+				if (code == -1) {
+					// check the limit first to keep the dictionary clean
+					if (distinctValues == MAX_DISTINCT_VALUES)
+						return false;
+					distinctValues++;
+					code = addDictionaryValue(value);
+				}
+			} else {
+				nullCount++;
+			}
+			if (size == values.length)
+				values = Arrays.copyOf(values, 2 * size);
+			values[size++] = code;
+			return true;
+		}
+
+		@Override
+		String get(int row) {
+			int code = values[row];
+			return code == -1 ? null : getDictionaryValue(code);
+		}
+
+		@Override
+		Column createView(ResultTable view) {
+			DictionaryColumn result = view.new DictionaryColumn(0);
+			result.values = values;
+			return result;
+		}
+
+		@Override
+		int compareText(int row1, int row2) {
+			int code1 = values[row1];
+			int code2 = values[row2];
+			return code1 == code2 ? 0 : getDictionaryValue(code1).compareTo(
+					getDictionaryValue(code2));
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return values[row] == -1;
+		}
+
+		@Override
+		Column convert() {
+			Column result = new StringColumn(size);
+			for (int i = 0; i < size; i++)
+				result.add(get(i));
+			return result;
+		}
+
+		@Override
+		boolean textEquals(int row, Column other, int otherRow) {
+			if (other instanceof DictionaryColumn
+					&& ((DictionaryColumn) other).getTable() == getTable())
+				return values[row] == ((DictionaryColumn) other).values[otherRow];
+			return super.textEquals(row, other, otherRow);
+		}
+
+		private ResultTable getTable() {
+			return ResultTable.this;
+		}
+
+		@Override
+		long estimateSize() {
+			return 4L * values.length;
+		}
+	}
+
+	/**
+	 * Stores the characters of all values in one array, so that no string
+	 * objects have to be kept.
+	 */
+	private class StringColumn extends Column {
+		private char[] chars;
+		private int length;
+		/** End position of each value within the character array. */
+		private int[] ends;
+		private boolean[] nulls;
+
+		StringColumn(int capacity) {
+			ends = new int[Math.max(capacity, INITIAL_CAPACITY)];
+			nulls = new boolean[ends.length];
+			chars = new char[4 * ends.length];
+		}
+
+		@Override
+		boolean add(String value) {
+			if (value != null) {
+				int newLength = length + value.length();
+				if (newLength > chars.length)
+					chars = Arrays.copyOf(chars, Math.max(newLength,
+							2 * chars.length));
+				value.getChars(0, value.length(), chars, length);
+				length = newLength;
+			} else {
+				nullCount++;
+			}
+			if (size == ends.length) {
+				ends = Arrays.copyOf(ends, 2 * size);
+				nulls = Arrays.copyOf(nulls, 2 * size);
+			}
+			nulls[size] = (value == null);
+			ends[size++] = length;
+			return true;
+		}
+
+		private int getStart(int row) {
+			return row > 0 ? ends[row - 1] : 0;
+		}
+
+		@Override
+		String get(int row) {
+			if (nulls[row])
+				return null;
+			int start = getStart(row);
+			return new String(chars, start, ends[row] - start);
+		}
+
+		@Override
+		Column createView(ResultTable view) {
+			StringColumn result = view.new StringColumn(0);
+			result.chars = chars;
+			result.length = length;
+			result.ends = ends;
+			result.nulls = nulls;
+			return result;
+		}
+
+		@Override
+		int compareText(int row1, int row2) {
+			int start1 = getStart(row1);
+			int start2 = getStart(row2);
+			int len1 = ends[row1] - start1;
+			int len2 = ends[row2] - start2;
+			for (int i = 0; i < len1 && i < len2; i++) {
+				char c1 = chars[start1 + i];
+				char c2 = chars[start2 + i];
+				if (c1 != c2)
+					return c1 - c2;
+			}
+			return len1 - len2;
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return nulls[row];
+		}
+
+		@Override
+		Column convert() {
+			return this;
+		}
+
+		@Override
+		int textHashCode(int row) {
+			int result = 0;
+			for (int i = getStart(row); i < ends[row]; i++)
+				result = 31 * result + chars[i];
+			return result;
+		}
+
+		@Override
+		boolean textEquals(int row, Column other, int otherRow) {
+			if (!(other instanceof StringColumn) || nulls[row]
+					|| other.isNull(otherRow))
+				return super.textEquals(row, other, otherRow);
+			StringColumn col = (StringColumn) other;
+			int start = getStart(row);
+			int otherStart = col.getStart(otherRow);
+			int len = ends[row] - start;
+			if (len != col.ends[otherRow] - otherStart)
+				return false;
+			for (int i = 0; i < len; i++)
+				if (chars[start + i] != col.chars[otherStart + i])
+					return false;
+			return true;
+		}
+
+		@Override
+		long estimateSize() {
+			return 2L * chars.length + 5L * ends.length;
+		}
+	}
+}
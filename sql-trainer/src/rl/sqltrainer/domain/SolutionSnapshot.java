@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.domain;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Precomputed result tables of exercise solutions. Each table is identified
+ * by the physical name of the database on which it was computed and by a
+ * hash value of the solution text. So outdated tables are simply not found
+ * after a solution has been modified. The tables keep the declared column
+ * types, so that answers are compared in the same way as with freshly
+ * computed solution results. Tables are shared with the callers, which
+ * must not modify them. A hash value over all solutions of the exercise set
+ * identifies the solutions, for which the snapshot was created.
+ *
+ * @author Ruediger Lunde
+ */
+public class SolutionSnapshot {
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+	private final String solutionsHash;
+
+	/**
+	 * Creates an empty snapshot.
+	 *
+	 * @param solutionsHash
+	 *            Hash value over the solutions of the exercise set.
+	 */
+	public SolutionSnapshot(String solutionsHash) {
+		this.solutionsHash = solutionsHash;
+	}
+
+	/** Returns the hash value over the solutions of the exercise set. */
+	public String getSolutionsHash() {
+		return solutionsHash;
+	}
+
+	/** Adds a result table. */
+	public void addEntry(String dbName, String solutionHash,
+			ResultTable table) {
+		entries.put(dbName + "|" + solutionHash, new Entry(dbName,
+				solutionHash, table));
+	}
+
+	/**
+	 * Returns the result table, which was computed for a solution with the
+	 * given hash value on the given database, or null if no such table
+	 * exists.
+	 */
+	public ResultTable getTable(String dbName, String solutionHash) {
+		Entry entry = entries.get(dbName + "|" + solutionHash);
+		return entry != null ? entry.table : null;
+	}
+
+	/** Returns all entries in insertion order. */
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/** Result table together with its identification. */
+	public static class Entry {
+		private final String dbName;
+		private final String solutionHash;
+		private final ResultTable table;
+
+		Entry(String dbName, String solutionHash, ResultTable table) {
+			this.dbName = dbName;
+			this.solutionHash = solutionHash;
+			this.table = table;
+		}
+
+		public String getDBName() {
+			return dbName;
+		}
+
+		public String getSolutionHash() {
+			return solutionHash;
+		}
+
+		/** Returns the result table. Must not be modified. */
+		public ResultTable getTable() {
+			return table;
+		}
+	}
+}
@@ -1,5 +1,5 @@
-
-/**
- * Covers aspects of domain objects, which are relevant for the SQL Trainer.
- */
+
+/**
+ * Covers aspects of domain objects, which are relevant for the SQL Trainer.
+ */
 package rl.sqltrainer.domain;
\ No newline at end of file
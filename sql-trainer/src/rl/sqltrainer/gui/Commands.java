@@ -1,36 +1,38 @@
-/*
- * Copyright (C) 2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.sqltrainer.gui;
-
-/**
- * Defines constants for action commands.
- * 
- * @author Ruediger Lunde
- * 
- */
-public abstract class Commands {
-	public static String LOAD_EXERCISE_SET_CMD = "LoadExerciseSetCmd";
-	public static String SAVE_EXERCISE_SET_CMD = "SaveExerciseSetCmd";
-	public static String EXIT_CMD = "ExitCmd";
-	public static String PREV_EXERCISE_CMD = "PrevExerciseCmd";
-	public static String NEXT_EXERCISE_CMD = "NextExerciseCmd";
-	public static String EXECUTE_CMD = "ExecuteCmd";
-	public static String FEEDBACK_CMD = "FeedbackCmd";
-	public static String LOCK_SOLUTIONS_CMD = "LockSolutionsCmd";
-	public static String NEW_EXERCISE_SET_CMD = "NewExerciseSetCmd";
-	public static String EDIT_EXERCISE_SET_CMD = "EditExerciseSetCmd";
-	public static String MODIFY_EXERCISE_CMD = "ModifyExerciseCmd";
-	public static String INSERT_EXERCISE_CMD = "InsertExerciseCmd";
-	public static String DELETE_EXERCISE_CMD = "DeleteExerciseCmd";
-	public static String MOVE_UP_EXERCISE_CMD = "MoveUpExerciseCmd";
-	public static String MOVE_DOWN_EXERCISE_CMD = "MoveDownExerciseCmd";
-	public static String ENABLE_AUTHORING_CMD = "EnableAuthoringCmd";
-	public static String USE_PLATFORM_LAF_CMD = "UsePlatformLookAndFeelCmd";
-	public static String INCREASE_FONT_CMD = "IncreaseFontCmd";
-	public static String DECREASE_FONT_CMD = "DecreaseFontCmd";
-	public static String SHOW_ABOUT_CMD = "ShowAboutCmd";
-	public static String SELECT_EXERCISE_CMD = "SelectExerciseCmd";
-	public static String SELECT_DB_CMD = "SelectDBCmd";
-}
+/*
+ * Copyright (C) 2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.gui;
+
+/**
+ * Defines constants for action commands.
+ * 
+ * @author Ruediger Lunde
+ * 
+ */
+public abstract class Commands {
+	public static String LOAD_EXERCISE_SET_CMD = "LoadExerciseSetCmd";
+	public static String SAVE_EXERCISE_SET_CMD = "SaveExerciseSetCmd";
+	public static String EXIT_CMD = "ExitCmd";
+	public static String PREV_EXERCISE_CMD = "PrevExerciseCmd";
+	public static String NEXT_EXERCISE_CMD = "NextExerciseCmd";
+	public static String EXECUTE_CMD = "ExecuteCmd";
+	public static String FEEDBACK_CMD = "FeedbackCmd";
+	public static String CANCEL_CMD = "CancelCmd";
+	public static String LOCK_SOLUTIONS_CMD = "LockSolutionsCmd";
+	public static String NEW_EXERCISE_SET_CMD = "NewExerciseSetCmd";
+	public static String EDIT_EXERCISE_SET_CMD = "EditExerciseSetCmd";
+	public static String MODIFY_EXERCISE_CMD = "ModifyExerciseCmd";
+	public static String INSERT_EXERCISE_CMD = "InsertExerciseCmd";
+	public static String DELETE_EXERCISE_CMD = "DeleteExerciseCmd";
+	public static String MOVE_UP_EXERCISE_CMD = "MoveUpExerciseCmd";
+	public static String MOVE_DOWN_EXERCISE_CMD = "MoveDownExerciseCmd";
+	public static String CREATE_SNAPSHOT_CMD = "CreateSnapshotCmd";
+	public static String ENABLE_AUTHORING_CMD = "EnableAuthoringCmd";
+	public static String USE_PLATFORM_LAF_CMD = "UsePlatformLookAndFeelCmd";
+	public static String INCREASE_FONT_CMD = "IncreaseFontCmd";
+	public static String DECREASE_FONT_CMD = "DecreaseFontCmd";
+	public static String SHOW_ABOUT_CMD = "ShowAboutCmd";
+	public static String SELECT_EXERCISE_CMD = "SelectExerciseCmd";
+	public static String SELECT_DB_CMD = "SelectDBCmd";
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.gui;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import rl.sqltrainer.domain.ResultTable;
+
+/**
+ * Computes row indexes for sorted and filtered presentations of result
+ * tables in a background thread, so that the event dispatch thread is not
+ * blocked by large results. A row index is a permutation of (a subset of)
+ * the row numbers of the table. Rows are filtered first and sorted
+ * afterwards by a stable merge sort, which compares the typed values of the
+ * sort column.
+ *
+ * @author Ruediger Lunde
+ */
+class RowIndexer {
+	private final ExecutorService executor;
+
+	/** Standard constructor. */
+	RowIndexer() {
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread result = new Thread(r, "RowIndexer");
+				result.setDaemon(true);
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Computes a row index in the background and passes it to the callback
+	 * within the event dispatch thread.
+	 *
+	 * @param view
+	 *            Table view, which is not modified anymore (see
+	 *            {@link ResultTable#createView()}).
+	 * @param sortColumn
+	 *            Column which defines the row order or -1 to keep the
+	 *            original order.
+	 * @param filter
+	 *            Text, which must be contained in one of the values of a
+	 *            row, ignoring case. The empty string accepts all rows.
+	 */
+	void computeIndex(final ResultTable view, final int sortColumn,
+			final boolean ascending, final String filter, final Callback callback) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final int[] index = computeIndex(view, sortColumn, ascending,
+						filter);
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						callback.indexComputed(index);
+					}
+				});
+			}
+		});
+	}
+
+	/** Computes a row index in the calling thread. */
+	static int[] computeIndex(ResultTable table, int sortColumn,
+			boolean ascending, String filter) {
+		int[] result = filter(table, filter.toLowerCase());
+		if (sortColumn != -1) {
+			int[] tmp = new int[result.length];
+			sort(table, sortColumn, ascending ? 1 : -1, result, tmp, 0,
+					result.length);
+		}
+		return result;
+	}
+
+	/** Returns the numbers of all rows which contain the text. */
+	private static int[] filter(ResultTable table, String text) {
+		int[] result = new int[table.getRowCount()];
+		int count = 0;
+		for (int row = 0; row < table.getRowCount(); row++) {
+			if (text.isEmpty() || contains(table, row, text))
+				result[count++] = row;
+		}
+		return count < result.length ? Arrays.copyOf(result, count) : result;
+	}
+
+	/** Checks whether one of the values of the row contains the text. */
+	private static boolean contains(ResultTable table, int row, String text) {
+		for (int col = 0; col < table.getColumnCount(); col++) {
+			String value = table.getValue(row, col);
+			if (value != null && value.toLowerCase().contains(text))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Sorts the range [from, to) of the row numbers in <code>rows</code> by
+	 * merge sort. Uses the same range of <code>tmp</code> as buffer.
+	 *
+	 * @param sign
+	 *            1 for ascending, -1 for descending order.
+	 */
+	private static void sort(ResultTable table, int col, int sign,
+			int[] rows, int[] tmp, int from, int to) {
+		if (to - from < 8) {
+			// insertion sort for short ranges
+			for (int i = from + 1; i < to; i++) {
+				int row = rows[i];
+				int j = i;
+				for (; j > from
+						&& sign * table.compareValues(col, rows[j - 1], row) > 0; j--)
+					rows[j] = rows[j - 1];
+				rows[j] = row;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sort(table, col, sign, rows, tmp, from, mid);
+		sort(table, col, sign, rows, tmp, mid, to);
+		if (sign * table.compareValues(col, rows[mid - 1], rows[mid]) <= 0)
+			return; // already in order
+		System.arraycopy(rows, from, tmp, from, to - from);
+		int i = from;
+		int j = mid;
+		for (int k = from; k < to; k++) {
+			if (j >= to || i < mid
+					&& sign * table.compareValues(col, tmp[i], tmp[j]) <= 0)
+				rows[k] = tmp[i++];
+			else
+				rows[k] = tmp[j++];
+		}
+	}
+
+	/** Receives computed row indexes within the event dispatch thread. */
+	static interface Callback {
+		void indexComputed(int[] rowIndex);
+	}
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.gui;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import rl.sqltrainer.application.SQLTrainer;
+import rl.sqltrainer.domain.Exercise;
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.sqltrainer.domain.Feedback;
+import rl.sqltrainer.persistence.BinaryFileHandler;
+import rl.sqltrainer.persistence.XMLFileHandler;
+import rl.util.exceptions.ErrorHandler;
+import rl.util.exceptions.PersistenceException;
+
+/**
+ * Grades a directory of submitted exercise set files without user
+ * interface and writes a score report. Solutions and database are taken
+ * from a reference exercise set, submissions only supply the answers, which
+ * are assigned to the reference exercises by exercise ID. Submissions for
+ * another exercise set are rejected. Submissions are loaded and graded in
+ * parallel. The solutions are executed once before grading and afterwards
+ * taken from the solution result cache, as far as its limits
+ * (<code>feedback.cache.maxEntries</code>,
+ * <code>feedback.cache.maxMemory</code>) allow. Binary exercise set files
+ * (<code>.sqlt</code>) are loaded without XML parsing. The report format is chosen by the file extension of
+ * the report file: <code>.json</code> produces JSON, everything else CSV.
+ * Answers, which cannot be executed, get zero points and the error message
+ * as feedback; the remaining exercises of the submission are graded as
+ * usual.
+ * <p>
+ * Option <code>-threads</code> sets the number of submissions, which are
+ * loaded and graded at the same time (default: number of processors). The
+ * statements of all submissions are executed by the shared grading engine,
+ * whose concurrency is bounded by the connection pool size
+ * (<code>db.pool.size</code>). Values above the pool size therefore only
+ * speed up loading.
+ * </p>
+ *
+ * <pre>
+ * Usage: SQLTrainerBatchGrader &lt;directory&gt; -solutions &lt;exercise set file&gt;
+ *        [-o &lt;report file&gt;] [-threads &lt;n&gt;] [-server &lt;name&gt;]
+ *        [-user &lt;name&gt;] [-passwd &lt;password&gt;]
+ * </pre>
+ *
+ * @author Ruediger Lunde
+ */
+public class SQLTrainerBatchGrader {
+	private final SQLTrainer application;
+	private final ExecutorService executor;
+	private final BinaryFileHandler binaryFileHandler;
+	/** Exercise set file providing solutions and database. */
+	private final File referenceFile;
+	private final ExerciseSet reference;
+
+	/**
+	 * Standard constructor.
+	 *
+	 * @param referenceFile
+	 *            Exercise set file, which provides the solutions and the
+	 *            database.
+	 */
+	public SQLTrainerBatchGrader(SQLTrainer app, File referenceFile,
+			int threadCount) throws PersistenceException {
+		application = app;
+		executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+		binaryFileHandler = new BinaryFileHandler();
+		binaryFileHandler.setMemoryMapped(true);
+		this.referenceFile = referenceFile.getAbsoluteFile();
+		reference = loadExerciseSet(referenceFile);
+	}
+
+	/**
+	 * Loads and grades all exercise set files (*.xml, *.sqlt) of the given
+	 * directory except the reference file. The results are returned in file
+	 * name order.
+	 */
+	public List<Submission> gradeDirectory(File dir) {
+		File[] files = dir.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File d, String name) {
+				String lcName = name.toLowerCase();
+				return (lcName.endsWith(".xml")
+						|| lcName.endsWith(BinaryFileHandler.FILE_EXTENSION))
+						&& !new File(d, name).getAbsoluteFile().equals(
+								referenceFile);
+			}
+		});
+		if (files == null)
+			throw new IllegalArgumentException("Not a directory: " + dir);
+		Arrays.sort(files);
+		List<Submission> result = new ArrayList<Submission>();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (File file : files) {
+			final Submission s = new Submission(file);
+			result.add(s);
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						s.exerciseSet = loadExerciseSet(s.file);
+						if (!s.exerciseSet.getID().equals(reference.getID()))
+							throw new IllegalArgumentException(
+									"Submission for exercise set "
+									+ s.exerciseSet.getID() + " instead of "
+									+ reference.getID() + ".");
+						s.gradingSet = createGradingSet(s.exerciseSet);
+					} catch (Exception e) {
+						s.error = e;
+					}
+				}
+			}));
+		}
+		waitFor(futures);
+		gradeSubmissions(result);
+		return result;
+	}
+
+	/**
+	 * Returns a copy of the reference exercise set, which contains the
+	 * answers of the submission. Answers for exercises, which are not part of
+	 * the reference set, are ignored.
+	 */
+	private ExerciseSet createGradingSet(ExerciseSet submission) {
+		Map<String, String> answers = new HashMap<String, String>();
+		for (int i = 0; i < submission.size(); i++) {
+			Exercise ex = submission.getExercise(i);
+			answers.put(ex.getID(), ex.getAnswer());
+		}
+		ExerciseSet result = new ExerciseSet(submission.getEditor(),
+				submission.getLastEdit(), reference.getSolHash(),
+				reference.getPasswd());
+		result.setData(reference.getCourse(), reference.getLecturer(),
+				reference.getID(), reference.getDB());
+		for (int i = 0; i < reference.size(); i++) {
+			Exercise refEx = reference.getExercise(i);
+			Exercise ex = new Exercise(refEx.getID(), refEx.getType(),
+					refEx.getTheme(), refEx.getQuestion());
+			ex.setSolution(refEx.getSolution());
+			String answer = answers.get(refEx.getID());
+			ex.setAnswer(answer != null ? answer : "");
+			result.addExercise(ex);
+		}
+		return result;
+	}
+
+	/**
+	 * Grades all loaded submissions in parallel on the database of the
+	 * reference exercise set.
+	 */
+	private void gradeSubmissions(List<Submission> submissions) {
+		String dbName = reference.getDB();
+		Exception dbError = null;
+		try {
+			if (!application.getLogicalDBNames().contains(dbName))
+				throw new IllegalArgumentException("Unknown database " + dbName
+						+ ".");
+			application.setDB(dbName);
+			application.precomputeSolutions(reference);
+		} catch (Exception e) {
+			dbError = e;
+		}
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (final Submission s : submissions) {
+			if (s.gradingSet == null)
+				continue;
+			if (dbError != null) {
+				s.error = dbError;
+				continue;
+			}
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						s.feedbacks = application.provideFeedbacks(s.gradingSet);
+						s.summary = application.summarizeFeedbacks(
+								s.gradingSet, s.feedbacks);
+					} catch (Exception e) {
+						s.error = e;
+					}
+				}
+			}));
+		}
+		waitFor(futures);
+	}
+
+	/** Loads an exercise set file in binary or XML format. */
+	private ExerciseSet loadExerciseSet(File file) throws PersistenceException {
+		if (BinaryFileHandler.isBinaryFile(file))
+			return binaryFileHandler.loadExerciseSet(file);
+		else
+			return new XMLFileHandler().loadExerciseSet(file);
+	}
+
+	/** Stops the worker threads. */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private void waitFor(List<Future<?>> futures) {
+		for (Future<?> f : futures) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Grading interrupted.", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Writes a score report. The format is JSON if the file name ends with
+	 * <code>.json</code>, otherwise CSV.
+	 */
+	public void writeReport(File file, List<Submission> submissions)
+			throws IOException {
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(file), "UTF-8"));
+		try {
+			if (file.getName().toLowerCase().endsWith(".json"))
+				writeJsonReport(writer, submissions);
+			else
+				writeCsvReport(writer, submissions);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes one line per submission. The exercise columns correspond to the
+	 * exercises of the reference set.
+	 */
+	private void writeCsvReport(PrintWriter writer,
+			List<Submission> submissions) {
+		Set<String> exIDs = new LinkedHashSet<String>();
+		for (int i = 0; i < reference.size(); i++)
+			exIDs.add(reference.getExercise(i).getID());
+		StringBuilder line = new StringBuilder(
+				"file,editor,exerciseSet,integrity,points");
+		for (String exID : exIDs)
+			line.append(",").append(csv("ex " + exID));
+		line.append(",error");
+		writer.println(line);
+		for (Submission s : submissions) {
+			line = new StringBuilder(csv(s.file.getName()));
+			ExerciseSet exSet = s.exerciseSet;
+			line.append(",").append(exSet != null ? csv(exSet.getEditor()) : "");
+			line.append(",").append(exSet != null ? csv(exSet.getID()) : "");
+			line.append(",").append(exSet != null ? s.isIntact() : "");
+			line.append(",").append(s.summary != null ? s.summary.getPoints() : "");
+			for (String exID : exIDs) {
+				line.append(",");
+				Feedback f = s.getFeedback(exID);
+				if (f != null)
+					line.append(f.getPoints());
+			}
+			line.append(",").append(s.error != null ? csv(s.getErrorMessage()) : "");
+			writer.println(line);
+		}
+	}
+
+	/** Writes an array with one object per submission. */
+	private void writeJsonReport(PrintWriter writer,
+			List<Submission> submissions) {
+		writer.println("[");
+		for (int i = 0; i < submissions.size(); i++) {
+			Submission s = submissions.get(i);
+			ExerciseSet exSet = s.exerciseSet;
+			StringBuilder obj = new StringBuilder("  {");
+			obj.append("\"file\": ").append(json(s.file.getName()));
+			if (exSet != null) {
+				obj.append(", \"editor\": ").append(json(exSet.getEditor()));
+				obj.append(", \"exerciseSet\": ").append(json(exSet.getID()));
+				obj.append(", \"integrity\": ").append(s.isIntact());
+			}
+			if (s.summary != null) {
+				obj.append(", \"points\": ").append(s.summary.getPoints());
+				obj.append(", \"exercises\": {");
+				String sep = "";
+				for (int exIdx = 0; exIdx < s.gradingSet.size(); exIdx++) {
+					Feedback f = s.feedbacks.get(exIdx);
+					if (f != null) {
+						obj.append(sep).append(json(s.gradingSet
+								.getExercise(exIdx).getID()))
+								.append(": ").append(f.getPoints());
+						sep = ", ";
+					}
+				}
+				obj.append("}");
+			}
+			if (s.error != null)
+				obj.append(", \"error\": ").append(json(s.getErrorMessage()));
+			obj.append(i < submissions.size() - 1 ? "}," : "}");
+			writer.println(obj);
+		}
+		writer.println("]");
+	}
+
+	private static String csv(String value) {
+		if (value.contains(",") || value.contains("\"") || value.contains("\n"))
+			value = "\"" + value.replace("\"", "\"\"") + "\"";
+		return value;
+	}
+
+	private static String json(String value) {
+		StringBuilder result = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\')
+				result.append('\\').append(c);
+			else if (c == '\n')
+				result.append("\\n");
+			else if (c == '\r')
+				result.append("\\r");
+			else if (c == '\t')
+				result.append("\\t");
+			else if (c < 0x20)
+				result.append(String.format("\\u%04x", (int) c));
+			else
+				result.append(c);
+		}
+		return result.append('"').toString();
+	}
+
+	/** Grading state of one submitted file. */
+	public static class Submission {
+		final File file;
+		/** Exercise set as submitted. */
+		ExerciseSet exerciseSet;
+		/** Reference exercise set with the answers of the submission. */
+		ExerciseSet gradingSet;
+		/** Feedbacks for the exercises of the grading set. */
+		List<Feedback> feedbacks;
+		Feedback summary;
+		Exception error;
+
+		Submission(File file) {
+			this.file = file;
+		}
+
+		/**
+		 * Checks whether the answers hash value was valid. The XML file
+		 * handler marks manipulated files by replacing the editor name.
+		 */
+		boolean isIntact() {
+			return !exerciseSet.getEditor().equals("??");
+		}
+
+		Feedback getFeedback(String exID) {
+			if (feedbacks != null)
+				for (int exIdx = 0; exIdx < gradingSet.size(); exIdx++)
+					if (gradingSet.getExercise(exIdx).getID().equals(exID))
+						return feedbacks.get(exIdx);
+			return null;
+		}
+
+		String getErrorMessage() {
+			StringBuilder result = new StringBuilder();
+			for (Throwable t = error; t != null; t = t.getCause()) {
+				if (result.length() > 0)
+					result.append(": ");
+				result.append(t.getMessage() != null ? t.getMessage() : t
+						.getClass().getSimpleName());
+			}
+			return result.toString();
+		}
+	}
+
+	/**
+	 * Grades all exercise set files of a directory and writes a report.
+	 * @param args Directory followed by options.
+	 */
+	public static void main(String[] args) {
+		Locale.setDefault(Locale.US);
+		String usage = "Usage: SQLTrainerBatchGrader <directory>"
+				+ " -solutions <exercise set file> [-o <report file>]"
+				+ " [-threads <n>] [-server <name>] [-user <name>]"
+				+ " [-passwd <password>]";
+		if (args.length == 0 || args[0].startsWith("-")) {
+			System.err.println(usage);
+			System.exit(2);
+		}
+		SQLTrainerStarter.initDataDirectories();
+		File dir = new File(args[0]);
+		File solutions = null;
+		File report = new File(dir, "grading-report.csv");
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		SQLTrainer app = new SQLTrainer();
+		String[] connData = app.getDBConnectionData();
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-solutions"))
+				solutions = new File(args[i + 1]);
+			else if (args[i].equals("-o"))
+				report = new File(args[i + 1]);
+			else if (args[i].equals("-threads"))
+				threadCount = Integer.parseInt(args[i + 1]);
+			else if (args[i].equals("-server"))
+				connData[0] = args[i + 1];
+			else if (args[i].equals("-user"))
+				connData[2] = args[i + 1];
+			else if (args[i].equals("-passwd"))
+				connData[3] = args[i + 1];
+			else
+				System.err.println("Unknown option " + args[i] + " ignored.");
+		}
+		if (solutions == null) {
+			System.err.println(usage);
+			System.exit(2);
+		}
+		app.setDBConnectionData(connData[0], connData[1], connData[2],
+				connData[3]);
+		SQLTrainerBatchGrader grader = null;
+		try {
+			grader = new SQLTrainerBatchGrader(app, solutions, threadCount);
+			long start = System.currentTimeMillis();
+			List<Submission> submissions = grader.gradeDirectory(dir);
+			grader.writeReport(report, submissions);
+			int failed = 0;
+			for (Submission s : submissions)
+				if (s.error != null)
+					failed++;
+			System.out.println(submissions.size() + " submissions graded in "
+					+ (System.currentTimeMillis() - start) / 1000 + " s, "
+					+ failed + " failed. Report: " + report);
+		} catch (Exception e) {
+			ErrorHandler.getInstance().handleError(e);
+			System.exit(1);
+		} finally {
+			if (grader != null)
+				grader.shutdown();
+		}
+	}
+}
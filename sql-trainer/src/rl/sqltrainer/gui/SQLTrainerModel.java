@@ -1,161 +1,330 @@
-/*
- * Copyright (C) 2008-2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.sqltrainer.gui;
-
-import java.awt.Image;
-import java.util.ArrayList;
-import java.util.List;
-
-import javax.swing.table.AbstractTableModel;
-
-import rl.sqltrainer.application.SQLTrainer;
-import rl.sqltrainer.domain.Exercise;
-import rl.sqltrainer.domain.ExerciseSet;
-
-/**
- * Adapter which hides application design details from the frame.
- * It provides access to the state of the <code>SQLTrainer</code> instance
- * and maintains some additional informations about the currently used databases. 
- * @author Ruediger Lunde
- */
-public class SQLTrainerModel {
-	SQLTrainer application;
-	private DBTableModel resultTable;
-	/** Classifies the events signaled to the view to inform about model changes. */
-	enum EventType { DB_INFO_CHANGED, EXERCISE_SET_CHANGED, CURR_EXERCISE_CHANGED,
-		RESULT_TABLE_CHANGED }
-	
-	/** Maintains all views. Typically, just one view is maintained here. */
-	protected List<ModelListener> listeners = new ArrayList<ModelListener>();
-
-	/** Creates a model for a given application. */
-	public SQLTrainerModel(SQLTrainer app) {
-		this.application = app;
-		resultTable =  new DBTableModel(app.getResultTableData());
-	}
-	
-	/** Adds a new view to the model. */
-	public void addModelListener(ModelListener listener) {
-		listeners.add(listener);
-	}
-	
-	/** Signals to all registered listeners that the model has changed. */
-	public void fireModelEvent(EventType type) {
-		ModelEvent e = new ModelEvent(type);
-		if (e.resultTableChanged())
-			resultTable.fireTableStructureChanged();
-		for (ModelListener listener : listeners)
-			listener.modelChanged(e);
-	}
-	
-	public boolean hasExercises() {
-		return application.getExerciseSet() != null;
-	}
-	
-	public ExerciseSet getCurrExerciseSet() {
-		return application.getExerciseSet();
-	}
-	
-	public Exercise getExercise() {
-		return application.getCurrExercise();
-	}
-	
-	public int getExerciseIdx() {
-		return application.getCurrExerciseIdx();
-	}
-	
-	public String getEditInfo() {
-		ExerciseSet es = application.getExerciseSet();
-		return "Editor: " + es.getEditor() + "\nLast Edit: " + es.getLastEdit();
-	}
-	
-	public AbstractTableModel getResultTableModel() {
-		return resultTable;
-	}
-	
-	public List<String> getLogicalDBNames() {
-		return application.getLogicalDBNames();
-	}
-	
-	public Image getDBSchemaImage() {
-		return application.getDBSchemaImage();
-	}
-	
-	public String getDBDescription() {
-		return application.getDBDescription();
-	}
-	
-	///////////////////////////////////////////////////////////
-	// inner classes
-	
-	/**
-	 * Object indicating to interested listeners what has changed
-	 * in the model.
-	 */
-	public static class ModelEvent {
-		
-		EventType type;
-		private ModelEvent(EventType type) {
-			this.type = type;
-		}
-		public boolean dbInfoChanged() {
-			return type == EventType.DB_INFO_CHANGED;
-		}
-		public boolean exerciseSetChanged() {
-			return type == EventType.EXERCISE_SET_CHANGED;
-		}
-		public boolean currExerciseChanged() {
-			return type == EventType.CURR_EXERCISE_CHANGED;
-		}
-		public boolean resultTableChanged() {
-			return type == EventType.RESULT_TABLE_CHANGED;
-		}
-	}
-	
-	/**
-	 * Observer interface for views which need to be informed
-	 * about model state changes and log messages to be printed out. 
-	 */
-	public static interface ModelListener {
-		public void modelChanged(ModelEvent e);
-	}
-	
-	/**
-	 * Model, which provides <code>JTable</code> instances with the
-	 * data they need.
-	 */
-	@SuppressWarnings("serial")
-	static class DBTableModel extends AbstractTableModel {
-	    /**
-	     * List of data sets. The first row contains the column names.
-	     * All values are represented as strings.
-	     */
-	    private List<List<String>> data;
-	    
-	    DBTableModel(List<List<String>> data) {
-	    	this.data = data;
-	    }
-	    
-	    /** Number of rows currently available. */
-	    public int getRowCount() {
-	        return Math.max(data.size()-1, 0);
-	    }
-	    /** Number of columns currently available. */
-	    public int getColumnCount() {
-	    	if (!data.isEmpty())
-	    		return data.get(0).size();
-	    	else
-	    		return 0;
-	    }
-	    /** Returns the name of the <col>-th column. */
-	    public String getColumnName(int col) {
-	        return data.get(0).get(col);
-	    }
-	    /** Looks up the values for each table cell. */
-	    public Object getValueAt(int row, int col) {
-	        return data.get(row+1).get(col);
-	    }
-	}
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.gui;
+
+import java.awt.Image;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+import rl.sqltrainer.application.SQLTrainer;
+import rl.sqltrainer.domain.Exercise;
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.sqltrainer.domain.ResultTable;
+
+/**
+ * Adapter which hides application design details from the frame.
+ * It provides access to the state of the <code>SQLTrainer</code> instance
+ * and maintains some additional informations about the currently used databases. 
+ * @author Ruediger Lunde
+ */
+public class SQLTrainerModel {
+	SQLTrainer application;
+	private DBTableModel resultTable;
+	/** Number of rows read by the active execution, -1 if idle. */
+	private int executionProgress = -1;
+	/** Classifies the events signaled to the view to inform about model changes. */
+	enum EventType { DB_INFO_CHANGED, EXERCISE_SET_CHANGED, CURR_EXERCISE_CHANGED,
+		RESULT_TABLE_CHANGED, EXECUTION_STATE_CHANGED }
+	
+	/** Maintains all views. Typically, just one view is maintained here. */
+	protected List<ModelListener> listeners = new ArrayList<ModelListener>();
+
+	/** Creates a model for a given application. */
+	public SQLTrainerModel(SQLTrainer app) {
+		this.application = app;
+		resultTable =  new DBTableModel(app.getResultTable());
+	}
+	
+	/** Adds a new view to the model. */
+	public void addModelListener(ModelListener listener) {
+		listeners.add(listener);
+	}
+	
+	/** Signals to all registered listeners that the model has changed. */
+	public void fireModelEvent(EventType type) {
+		ModelEvent e = new ModelEvent(type);
+		if (e.resultTableChanged())
+			resultTable.resetView();
+		for (ModelListener listener : listeners)
+			listener.modelChanged(e);
+	}
+	
+	public boolean hasExercises() {
+		return application.getExerciseSet() != null;
+	}
+	
+	public ExerciseSet getCurrExerciseSet() {
+		return application.getExerciseSet();
+	}
+	
+	public Exercise getExercise() {
+		return application.getCurrExercise();
+	}
+	
+	public int getExerciseIdx() {
+		return application.getCurrExerciseIdx();
+	}
+	
+	public String getEditInfo() {
+		ExerciseSet es = application.getExerciseSet();
+		return "Editor: " + es.getEditor() + "\nLast Edit: " + es.getLastEdit();
+	}
+	
+	/**
+	 * Replaces the result table by an empty table with the same columns as
+	 * the given table and informs the listeners about the structural change.
+	 */
+	public void startResultTable(ResultTable columns) {
+		application.startResultTable(columns);
+		fireModelEvent(EventType.RESULT_TABLE_CHANGED);
+	}
+	
+	/**
+	 * Appends rows to the result table. The table is only informed about
+	 * the inserted rows, so that it can avoid a complete layout pass.
+	 */
+	public void appendResultRows(ResultTable rows) {
+		if (rows.getRowCount() > 0) {
+			application.addResultTableRows(rows);
+			resultTable.rowsAppended(rows.getRowCount());
+		}
+	}
+	
+	/**
+	 * Sorts the presented result table by the specified column. Repeated
+	 * calls for the same column toggle between ascending order, descending
+	 * order, and the original order.
+	 */
+	public void sortResultTable(int col) {
+		resultTable.toggleSortColumn(col);
+	}
+	
+	/**
+	 * Restricts the presented result table to rows with a value which
+	 * contains the given text, ignoring case.
+	 */
+	public void setResultTableFilter(String text) {
+		resultTable.setFilter(text);
+	}
+	
+	public AbstractTableModel getResultTableModel() {
+		return resultTable;
+	}
+	
+	/**
+	 * Updates the progress information about the active statement execution
+	 * and informs the listeners.
+	 * @param rows Number of rows read so far or -1 if no execution is active.
+	 */
+	public void setExecutionProgress(int rows) {
+		executionProgress = rows;
+		fireModelEvent(EventType.EXECUTION_STATE_CHANGED);
+	}
+	
+	/** Checks whether a statement or feedback request is being processed. */
+	public boolean isExecuting() {
+		return executionProgress != -1;
+	}
+	
+	/**
+	 * Returns the number of rows, the active statement execution has read
+	 * so far, or -1 if no execution is active.
+	 */
+	public int getExecutionProgress() {
+		return executionProgress;
+	}
+	
+	/** Checks whether the result table shows only the first rows of a result. */
+	public boolean isResultTableTruncated() {
+		return application.isResultTableTruncated();
+	}
+	
+	public List<String> getLogicalDBNames() {
+		return application.getLogicalDBNames();
+	}
+	
+	public Image getDBSchemaImage() {
+		return application.getDBSchemaImage();
+	}
+	
+	/** Sets the factor by which schema images are scaled. */
+	public void setDBSchemaScale(float scale) {
+		application.setDBSchemaScale(scale);
+	}
+	
+	public String getDBDescription() {
+		return application.getDBDescription();
+	}
+	
+	///////////////////////////////////////////////////////////
+	// inner classes
+	
+	/**
+	 * Object indicating to interested listeners what has changed
+	 * in the model.
+	 */
+	public static class ModelEvent {
+		
+		EventType type;
+		private ModelEvent(EventType type) {
+			this.type = type;
+		}
+		public boolean dbInfoChanged() {
+			return type == EventType.DB_INFO_CHANGED;
+		}
+		public boolean exerciseSetChanged() {
+			return type == EventType.EXERCISE_SET_CHANGED;
+		}
+		public boolean currExerciseChanged() {
+			return type == EventType.CURR_EXERCISE_CHANGED;
+		}
+		public boolean resultTableChanged() {
+			return type == EventType.RESULT_TABLE_CHANGED;
+		}
+		public boolean executionStateChanged() {
+			return type == EventType.EXECUTION_STATE_CHANGED;
+		}
+	}
+	
+	/**
+	 * Observer interface for views which need to be informed
+	 * about model state changes and log messages to be printed out. 
+	 */
+	public static interface ModelListener {
+		public void modelChanged(ModelEvent e);
+	}
+	
+	/**
+	 * Model, which provides <code>JTable</code> instances with the
+	 * data they need. Values are read directly from the columns of
+	 * the result table. If the table is sorted or filtered, view rows are
+	 * mapped to table rows by a row index, which is computed in the
+	 * background. Until the index is available, the previous presentation
+	 * is kept. Rows appended meanwhile become visible with the next index.
+	 */
+	@SuppressWarnings("serial")
+	static class DBTableModel extends AbstractTableModel {
+	    private ResultTable data;
+	    private final RowIndexer indexer = new RowIndexer();
+	    /** Table row for each view row, null if all rows are shown unchanged. */
+	    private int[] rowIndex;
+	    private int sortColumn = -1;
+	    private boolean sortAscending;
+	    private String filter = "";
+	    /** Incremented whenever columns, sorting or filter change. */
+	    private int version;
+	    private boolean indexing;
+	    private boolean indexOutdated;
+	    
+	    DBTableModel(ResultTable data) {
+	    	this.data = data;
+	    }
+	    
+	    /** Number of rows currently available. */
+	    public int getRowCount() {
+	        return rowIndex != null ? rowIndex.length : data.getRowCount();
+	    }
+	    /** Number of columns currently available. */
+	    public int getColumnCount() {
+	    	return data.getColumnCount();
+	    }
+	    /** Returns the name of the <col>-th column and marks the sort column. */
+	    public String getColumnName(int col) {
+	    	String result = data.getColumnNames().get(col);
+	    	if (col == sortColumn)
+	    		result += sortAscending ? " \u25B2" : " \u25BC";
+	        return result;
+	    }
+	    /** Looks up the values for each table cell. */
+	    public Object getValueAt(int row, int col) {
+	        return data.getValue(rowIndex != null ? rowIndex[row] : row, col);
+	    }
+	    
+	    /**
+	     * Adjusts the presentation to a new result table. The sort column is
+	     * reset, the filter is kept.
+	     */
+	    void resetView() {
+	    	sortColumn = -1;
+	    	version++;
+	    	rowIndex = filter.isEmpty() ? null : new int[0];
+	    	fireTableStructureChanged();
+	    	updateRowIndex();
+	    }
+	    
+	    /** Informs the table about rows added at the end of the result table. */
+	    void rowsAppended(int count) {
+	    	if (rowIndex == null) {
+	    		int last = data.getRowCount() - 1;
+	    		fireTableRowsInserted(last - count + 1, last);
+	    	} else {
+	    		updateRowIndex();
+	    	}
+	    }
+	    
+	    /**
+	     * Ascending, descending, unsorted. The columns are not changed, so
+	     * that the table keeps column widths and order. The view has to
+	     * update the header, which marks the sort column.
+	     */
+	    void toggleSortColumn(int col) {
+	    	if (col != sortColumn) {
+	    		sortColumn = col;
+	    		sortAscending = true;
+	    	} else if (sortAscending) {
+	    		sortAscending = false;
+	    	} else {
+	    		sortColumn = -1;
+	    	}
+	    	version++;
+	    	fireTableDataChanged();
+	    	updateRowIndex();
+	    }
+	    
+	    void setFilter(String text) {
+	    	if (!text.equals(filter)) {
+	    		filter = text;
+	    		version++;
+	    		updateRowIndex();
+	    	}
+	    }
+	    
+	    /**
+	     * Starts the computation of a new row index. If a computation is
+	     * already running, it is restarted after completion.
+	     */
+	    private void updateRowIndex() {
+	    	if (sortColumn == -1 && filter.isEmpty()) {
+	    		if (rowIndex != null) {
+	    			rowIndex = null;
+	    			fireTableDataChanged();
+	    		}
+	    	} else if (indexing) {
+	    		indexOutdated = true;
+	    	} else {
+	    		indexing = true;
+	    		indexOutdated = false;
+	    		final int indexVersion = version;
+	    		indexer.computeIndex(data.createView(), sortColumn, sortAscending,
+	    				filter, new RowIndexer.Callback() {
+	    			@Override
+	    			public void indexComputed(int[] index) {
+	    				indexing = false;
+	    				// an index for fewer rows is better than none
+	    				if (indexVersion == version && (sortColumn != -1
+	    						|| !filter.isEmpty())) {
+	    					rowIndex = index;
+	    					fireTableDataChanged();
+	    				}
+	    				if (indexOutdated)
+	    					updateRowIndex();
+	    			}
+	    		});
+	    	}
+	    }
+	}
 }
\ No newline at end of file
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.gui;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import rl.sqltrainer.application.SQLTrainer;
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.sqltrainer.domain.Feedback;
+import rl.sqltrainer.domain.ResultTable;
+import rl.sqltrainer.domain.SolutionSnapshot;
+import rl.sqltrainer.persistence.ResultCursor;
+
+/**
+ * Executes SQL statements and feedback requests in a background thread, so
+ * that the event dispatch thread is never blocked by the database server.
+ * Progress information and results are handed over to model and controller
+ * within the event dispatch thread. At most one execution is active at a
+ * time, and the active execution can be cancelled.
+ *
+ * @author Ruediger Lunde
+ */
+class StatementExecutionService {
+	/** Maximal number of rows delivered to the model at once. */
+	private static final int BATCH_SIZE = 500;
+	/** Maximal time in milliseconds, rows are held back before delivery. */
+	private static final long BATCH_INTERVAL = 100;
+
+	private final SQLTrainer application;
+	private final SQLTrainerModel model;
+	private final SQLTrainerController controller;
+	private final ExecutorService executor;
+	/** Only accessed by the event dispatch thread. */
+	private boolean running;
+	private volatile boolean cancelled;
+
+	/** Standard constructor. */
+	StatementExecutionService(SQLTrainer app, SQLTrainerModel model,
+			SQLTrainerController controller) {
+		this.application = app;
+		this.model = model;
+		this.controller = controller;
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread result = new Thread(r, "StatementExecution");
+				result.setDaemon(true);
+				return result;
+			}
+		});
+	}
+
+	/** Checks whether a statement or feedback request is being processed. */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Executes the given statement in the background. As soon as the column
+	 * names are known, the result table is replaced by an empty table. Rows
+	 * are delivered to the model in batches while the cursor advances.
+	 */
+	public void executeStatement(final String statement) {
+		if (!start())
+			return;
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				boolean truncated = false;
+				Exception error = null;
+				try {
+					ResultCursor cursor = application.openResultCursor(statement);
+					try {
+						if (cancelled)
+							cursor.cancel();
+						deliverColumns(cursor.createResultTable());
+						ResultTable batch = cursor.createResultTable();
+						long lastDelivery = System.currentTimeMillis();
+						while (cursor.nextRow(batch)) {
+							long time = System.currentTimeMillis();
+							if (batch.getRowCount() >= BATCH_SIZE
+									|| time - lastDelivery >= BATCH_INTERVAL) {
+								deliverRows(batch, cursor.getRowCount());
+								batch = cursor.createResultTable();
+								lastDelivery = time;
+							}
+						}
+						deliverRows(batch, cursor.getRowCount());
+						truncated = cursor.isTruncated();
+					} finally {
+						cursor.close();
+					}
+				} catch (Exception e) {
+					error = e;
+				}
+				final boolean finalTruncated = truncated;
+				final Exception finalError = error;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						if (finalError == null) {
+							application.setResultTableTruncated(finalTruncated);
+							stop();
+							controller.statementExecuted();
+						} else {
+							stop();
+							controller.executionFailed(finalError, cancelled);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Computes a feedback for the current exercise or the whole exercise set
+	 * in the background and passes it to the controller. Answers and
+	 * solutions are copied before, so that the feedback is not affected by
+	 * later changes of the current exercise or exercise set.
+	 */
+	public void provideFeedback() {
+		if (!start())
+			return;
+		final ExerciseSet exSet = application.copyExerciseSetForFeedback();
+		final int exIdx = application.getCurrExerciseIdx();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Feedback feedback = null;
+				Exception error = null;
+				try {
+					feedback = application.provideFeedback(exSet, exIdx);
+				} catch (Exception e) {
+					error = e;
+				}
+				final Feedback finalFeedback = feedback;
+				final Exception finalError = error;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						stop();
+						if (finalError == null && !cancelled)
+							controller.feedbackProvided(finalFeedback);
+						else
+							controller.executionFailed(finalError, cancelled);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Executes all solutions of the current exercise set in the background
+	 * and stores the results in a snapshot file. Exercise set and file are
+	 * captured before, and the snapshot is only installed if the exercise
+	 * set file is still open afterwards.
+	 */
+	public void createSolutionSnapshot() {
+		if (!start())
+			return;
+		final ExerciseSet exSet = application.copyExerciseSetForSnapshot();
+		final File exSetFile = application.getExerciseSetFile();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				SolutionSnapshot snapshot = null;
+				Exception error = null;
+				try {
+					snapshot = application.createSolutionSnapshot(exSet,
+							exSetFile);
+				} catch (Exception e) {
+					error = e;
+				}
+				final SolutionSnapshot finalSnapshot = snapshot;
+				final Exception finalError = error;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						stop();
+						if (finalError == null && !cancelled) {
+							application.setSolutionSnapshot(finalSnapshot,
+									exSetFile);
+							controller.solutionSnapshotCreated(finalSnapshot
+									.size());
+						} else {
+							controller.executionFailed(finalError, cancelled);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/** Aborts the active execution if there is one. */
+	public void cancel() {
+		if (running) {
+			cancelled = true;
+			application.cancelStatements();
+		}
+	}
+
+	/** Marks the service as running. Returns false if it was running already. */
+	private boolean start() {
+		boolean result = false;
+		if (!running) {
+			running = true;
+			cancelled = false;
+			model.setExecutionProgress(0);
+			result = true;
+		}
+		return result;
+	}
+
+	/** Marks the service as idle. */
+	private void stop() {
+		running = false;
+		model.setExecutionProgress(-1);
+	}
+
+	/** Replaces the result table by an empty table with the given columns. */
+	private void deliverColumns(final ResultTable columns) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				model.startResultTable(columns);
+			}
+		});
+	}
+
+	/** Appends a batch of rows to the result table and reports progress. */
+	private void deliverRows(final ResultTable rows, final int rowCount) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				model.appendResultRows(rows);
+				if (running)
+					model.setExecutionProgress(rowCount);
+			}
+		});
+	}
+}
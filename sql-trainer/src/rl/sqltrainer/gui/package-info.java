@@ -1,7 +1,7 @@
-/**
- * Contains a Swing-based GUI for the SQL Trainer. The design follows
- * a model-view-controller approach, but with a loose coupling between
- * model and view. Call the main method of class 
- * {@link rl.sqltrainer.gui.SQLTrainerStarter} to start the application.
- */
+/**
+ * Contains a Swing-based GUI for the SQL Trainer. The design follows
+ * a model-view-controller approach, but with a loose coupling between
+ * model and view. Call the main method of class 
+ * {@link rl.sqltrainer.gui.SQLTrainerStarter} to start the application.
+ */
 package rl.sqltrainer.gui;
\ No newline at end of file
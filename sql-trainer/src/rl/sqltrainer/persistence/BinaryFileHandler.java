@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import rl.sqltrainer.domain.Exercise;
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.util.exceptions.PersistenceException;
+
+/**
+ * Reads and writes exercise sets in a compact binary format. Loading such
+ * files needs neither XML parsing nor DTD resolution, which pays off when
+ * thousands of submissions have to be graded. The file starts with a magic
+ * number and a format version, followed by the attributes of the exercise
+ * set (including the answers hash value), the introduction, and the
+ * exercises. Strings are stored as length-prefixed UTF-8 byte sequences,
+ * length -1 denotes null. The contents are the same as in the XML format,
+ * so files can be converted in both directions without loss.
+ *
+ * @author Ruediger Lunde
+ */
+public class BinaryFileHandler {
+	/** Extension of binary exercise set files. */
+	public static final String FILE_EXTENSION = ".sqlt";
+	private static final int MAGIC = 0x53514c54; // "SQLT"
+	private static final int VERSION = 1;
+	private static final String UTF8 = "UTF-8";
+
+	private boolean memoryMapped;
+
+	/** Checks whether the given file name denotes a binary exercise set. */
+	public static boolean isBinaryFile(File file) {
+		return file.getName().toLowerCase().endsWith(FILE_EXTENSION);
+	}
+
+	/**
+	 * Controls whether files are read by memory mapping instead of copying
+	 * them into a heap buffer. Note that on some platforms, mapped files
+	 * cannot be deleted until the mapping has been garbage collected.
+	 */
+	public void setMemoryMapped(boolean state) {
+		memoryMapped = state;
+	}
+
+	/**
+	 * Loads an exercise set from a binary file. As for XML files, the editor
+	 * is replaced by "??" if the answers do not match the stored hash value.
+	 */
+	public ExerciseSet loadExerciseSet(File file) throws PersistenceException {
+		ExerciseSet result;
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer;
+			if (memoryMapped) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size());
+			} else {
+				buffer = ByteBuffer.allocate((int) channel.size());
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+					;
+				buffer.flip();
+			}
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC)
+				throw new PersistenceException(
+						"Not a binary exercise set file: " + file);
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new PersistenceException(
+						"Unsupported exercise set version " + version + ".");
+			String course = readString(buffer);
+			String lecturer = readString(buffer);
+			String id = readString(buffer);
+			String db = readString(buffer);
+			String editor = readString(buffer);
+			String lastEdit = readString(buffer);
+			String hashA = readString(buffer);
+			String hashS = readString(buffer);
+			String passwd = readString(buffer);
+			result = new ExerciseSet(editor, lastEdit, hashS, passwd);
+			result.setData(course, lecturer, id, db);
+			result.setIntro(readString(buffer));
+			int exCount = buffer.getInt();
+			for (int i = 0; i < exCount; i++) {
+				String exID = readString(buffer);
+				Exercise.Type type = Exercise.Type.valueOf(readString(buffer));
+				String theme = readString(buffer);
+				Exercise ex = new Exercise(exID, type, theme,
+						readString(buffer));
+				ex.setAnswer(readString(buffer));
+				ex.setSolution(readString(buffer));
+				result.addExercise(ex);
+			}
+			if (result.containsAnswers()
+					&& !hashA.equals(XMLFileHandler.computeHashValue(result)))
+				result.setEditor("??");
+		} catch (PersistenceException e) {
+			throw e;
+		} catch (Exception e) {
+			// includes BufferUnderflowException for truncated files
+			throw new PersistenceException("Loading exercise set " + file
+					+ " failed.", e);
+		} finally {
+			try {
+				if (in != null)
+					in.close();
+			} catch (IOException e) {
+				// file has been read completely or is unusable anyway...
+			}
+		}
+		return result;
+	}
+
+	/** Writes a binary representation of an exercise set to a file. */
+	public void saveExerciseSet(File file, ExerciseSet exercises)
+			throws PersistenceException {
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			boolean containsAnswers = exercises.containsAnswers();
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, exercises.getCourse());
+			writeString(out, exercises.getLecturer());
+			writeString(out, exercises.getID());
+			writeString(out, exercises.getDB());
+			// the same attributes as in XML files are stored
+			writeString(out, containsAnswers ? exercises.getEditor() : "");
+			writeString(out, containsAnswers ? exercises.getLastEdit() : "");
+			writeString(out, containsAnswers ? XMLFileHandler
+					.computeHashValue(exercises) : "");
+			writeString(out, !exercises.getPasswd().isEmpty() ? exercises
+					.getSolHash() : "");
+			writeString(out, exercises.getPasswd());
+			writeString(out, exercises.getIntro());
+			out.writeInt(exercises.size());
+			for (int i = 0; i < exercises.size(); i++) {
+				Exercise ex = exercises.getExercise(i);
+				writeString(out, ex.getID());
+				writeString(out, ex.getType().name());
+				writeString(out, ex.getTheme());
+				writeString(out, ex.getQuestion());
+				writeString(out, ex.getAnswer());
+				writeString(out, ex.getSolution());
+			}
+			out.close();
+			out = null;
+		} catch (IOException e) {
+			throw new PersistenceException("Writing exercise set to file "
+					+ file + " failed.", e);
+		} finally {
+			try {
+				if (out != null)
+					out.close();
+			} catch (IOException e) {
+				// the exception which caused the failure is more important
+			}
+		}
+	}
+
+	private static String readString(ByteBuffer buffer)
+			throws UnsupportedEncodingException {
+		int length = buffer.getInt();
+		if (length < 0)
+			return null;
+		if (length > buffer.remaining())
+			throw new BufferUnderflowException();
+		String result;
+		if (buffer.hasArray()) {
+			result = new String(buffer.array(), buffer.arrayOffset()
+					+ buffer.position(), length, UTF8);
+			buffer.position(buffer.position() + length);
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			result = new String(bytes, UTF8);
+		}
+		return result;
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+}
@@ -1,121 +1,260 @@
-/*
- * Copyright (C) 2008-2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.sqltrainer.persistence;
-
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * Class, responsible for communication with a database using JDBC. It maintains
- * connection data and provides a method to execute a query.
- * 
- * @author Ruediger Lunde
- */
-public class DBConnectionHandler {
-	private String jdbcDriver =
-		"com.microsoft.sqlserver.jdbc.SQLServerDriver"; // example
-	private String jdbcUrl = 
-		"jdbc:sqlserver://SERVER;databaseName=DBNAME"; // example
-	private String server;
-	private String db;
-	private String user;
-	private String password;
-
-	/**
-	 * Changes JDBC driver settings.
-	 * 
-	 * @param driver
-	 *            Class name of the JDBC driver to be used.
-	 * @param protocol
-	 *            Name of the vendor specific JDBC sub protocol to be used.
-	 */
-	public void setJdbcDriverData(String driver, String url) {
-		jdbcDriver = driver;
-		jdbcUrl = url;
-	}
-
-	/** Modifies the connection data settings. */
-	public void setConnectionData(String server, String db, String user,
-			String passwd) {
-		this.server = server;
-		this.db = db;
-		this.user = user;
-		this.password = passwd;
-	}
-
-	/** Returns server name, database name, user name, and password. */
-	public String[] getConnectionData() {
-		return new String[] { server, db, user, password };
-	}
-
-	/**
-	 * Connects to the database, executes the specified SQL query, and returns
-	 * the result in nested list of strings. Note that exception handling is not
-	 * included. It is delegated to the caller.
-	 */
-	public List<List<String>> executeStatement(String statement)
-			throws ClassNotFoundException, SQLException {
-		List<List<String>> result = new ArrayList<List<String>>();
-		Connection con = null;
-		Statement stmt = null;
-		ResultSet res = null;
-		try {
-			// for debugging only
-			// DriverManager.setLogWriter(new java.io.PrintWriter(System.out));
-
-			// needed because our current VPN client does not support IPv6... 
-			System.setProperty("java.net.preferIPv4Stack", "true");
-			
-			// make sure that JDBC driver is loaded
-			Class.forName(jdbcDriver);
-
-			// set up the connection to the database
-			String url = jdbcUrl;
-			url = url.replace("SERVER", server);
-			url = url.replace("DBNAME", db);
-			
-			con = DriverManager.getConnection(url, user, password);
-
-			// via a JDBC/ODBC bridge:
-			// Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
-			// con = DriverManager.getConnection("jdbc:odbc:DS_DABAS_MD2_A");
-
-			// generate a statement
-			stmt = con.createStatement();
-			// execute statement and create result
-			res = stmt.executeQuery(statement);
-
-			ResultSetMetaData metadata = res.getMetaData();
-			int colCount = metadata.getColumnCount();
-			List<String> row = new ArrayList<String>(colCount);
-			for (int i = 0; i < colCount; i++)
-				row.add(metadata.getColumnName(i + 1));
-			result.add(row);
-			// position the cursor
-			while (res.next()) {
-				row = new ArrayList<String>(colCount);
-				// retrieve the result
-				for (int i = 0; i < colCount; i++)
-					row.add(res.getString(i + 1));
-				result.add(row);
-			}
-		} finally {
-			// close everything down
-			if (res != null)
-				res.close();
-			if (stmt != null)
-				stmt.close();
-			if (con != null)
-				con.close();
-		}
-		return result;
-	}
-}
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import rl.sqltrainer.domain.ResultTable;
+
+/**
+ * Class, responsible for communication with a database using JDBC. It maintains
+ * connection data and provides a method to execute a query. Connections are
+ * taken from a {@link DBConnectionPool} and returned after use, so that
+ * consecutive statements can reuse already established connections.
+ * 
+ * @author Ruediger Lunde
+ */
+public class DBConnectionHandler {
+	private String jdbcDriver =
+		"com.microsoft.sqlserver.jdbc.SQLServerDriver"; // example
+	private String jdbcUrl = 
+		"jdbc:sqlserver://SERVER;databaseName=DBNAME"; // example
+	private String server;
+	private String db;
+	private String user;
+	private String password;
+	private int fetchSize = 100;
+	private int maxRows = 10000;
+	/** Query timeout in seconds, 0 means no limit. */
+	private int queryTimeout;
+	private boolean driverLoaded;
+	private final DBConnectionPool pool = new DBConnectionPool();
+	/** Cursors which have been opened and not yet closed. */
+	private final Set<ResultCursor> openCursors =
+		Collections.synchronizedSet(new HashSet<ResultCursor>());
+	/** Number of calls of {@link #cancelStatements()}. */
+	private volatile int cancelCount;
+
+	/**
+	 * Changes JDBC driver settings.
+	 * 
+	 * @param driver
+	 *            Class name of the JDBC driver to be used.
+	 * @param protocol
+	 *            Name of the vendor specific JDBC sub protocol to be used.
+	 */
+	public synchronized void setJdbcDriverData(String driver, String url) {
+		jdbcDriver = driver;
+		jdbcUrl = url;
+		driverLoaded = false;
+		updatePool();
+	}
+
+	/** Modifies the connection data settings. */
+	public synchronized void setConnectionData(String server, String db,
+			String user, String passwd) {
+		this.server = server;
+		this.db = db;
+		this.user = user;
+		this.password = passwd;
+		updatePool();
+	}
+
+	/**
+	 * Changes the settings of the connection pool.
+	 * 
+	 * @param maxSize
+	 *            Maximal number of simultaneously used connections.
+	 * @param idleTimeout
+	 *            Time in seconds after which unused connections are closed.
+	 */
+	public void setPoolData(int maxSize, int idleTimeout) {
+		pool.setPoolData(maxSize, idleTimeout);
+	}
+
+	/** Returns the maximal number of simultaneously used connections. */
+	public int getPoolSize() {
+		return pool.getMaxSize();
+	}
+
+	/**
+	 * Changes the settings for result delivery.
+	 * 
+	 * @param fetchSize
+	 *            Number of rows which are fetched from the database at once.
+	 * @param maxRows
+	 *            Maximal number of rows delivered by cursors which are
+	 *            opened with default row limit, 0 means no limit.
+	 */
+	public void setCursorData(int fetchSize, int maxRows) {
+		this.fetchSize = fetchSize;
+		this.maxRows = maxRows;
+	}
+
+	/** Returns the default row limit for cursors, 0 means no limit. */
+	public int getMaxRows() {
+		return maxRows;
+	}
+
+	/**
+	 * Sets the time in seconds, the database may spend on executing a query.
+	 * Value 0 means no limit.
+	 */
+	public void setQueryTimeout(int seconds) {
+		queryTimeout = seconds;
+	}
+
+	/** Returns the current query timeout in seconds, 0 means no limit. */
+	public int getQueryTimeout() {
+		return queryTimeout;
+	}
+
+	/**
+	 * Cancels all statements which are currently executed or read. This
+	 * method is typically called by another thread than the one waiting for
+	 * the results.
+	 */
+	public void cancelStatements() {
+		cancelCount++;
+		List<ResultCursor> cursors;
+		synchronized (openCursors) {
+			cursors = new ArrayList<ResultCursor>(openCursors);
+		}
+		for (ResultCursor cursor : cursors)
+			cursor.cancel();
+	}
+
+	/**
+	 * Returns the number of calls of {@link #cancelStatements()}. Callers can
+	 * compare values to find out whether a failure may have been caused by
+	 * cancellation.
+	 */
+	public int getCancelCount() {
+		return cancelCount;
+	}
+
+	/** Closes all connections which are currently not in use. */
+	public void closeConnections() {
+		pool.close();
+	}
+
+	/** Returns server name, database name, user name, and password. */
+	public synchronized String[] getConnectionData() {
+		return new String[] { server, db, user, password };
+	}
+
+	/**
+	 * Executes the specified SQL query and returns a cursor for reading the
+	 * result row by row. At most <code>getMaxRows()</code> rows are
+	 * delivered. The caller is responsible for closing the cursor.
+	 */
+	public ResultCursor openCursor(String statement)
+			throws ClassNotFoundException, SQLException {
+		return openCursor(statement, maxRows);
+	}
+
+	/**
+	 * Executes the specified SQL query and returns a cursor which delivers at
+	 * most <code>maxRows</code> rows (0 means no limit). The caller is
+	 * responsible for closing the cursor.
+	 */
+	public ResultCursor openCursor(String statement, int maxRows)
+			throws ClassNotFoundException, SQLException {
+		// for debugging only
+		// DriverManager.setLogWriter(new java.io.PrintWriter(System.out));
+
+		Connection con = getConnection();
+
+		// via a JDBC/ODBC bridge:
+		// Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
+		// con = DriverManager.getConnection("jdbc:odbc:DS_DABAS_MD2_A");
+
+		// the cursor gives the connection back when closed
+		ResultCursor cursor = new ResultCursor(this, con, fetchSize, maxRows,
+				queryTimeout);
+		openCursors.add(cursor);
+		cursor.execute(statement);
+		return cursor;
+	}
+
+	/**
+	 * Executes the specified SQL query using a pooled connection, and returns
+	 * the complete result in nested list of strings. The first list contains
+	 * the column names. Note that exception handling is not included. It is
+	 * delegated to the caller.
+	 */
+	public List<List<String>> executeStatement(String statement)
+			throws ClassNotFoundException, SQLException {
+		List<List<String>> result = new ArrayList<List<String>>();
+		ResultCursor cursor = openCursor(statement, 0);
+		try {
+			result.add(new ArrayList<String>(cursor.getColumnNames()));
+			List<String> row;
+			while ((row = cursor.nextRow()) != null)
+				result.add(row);
+		} finally {
+			cursor.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Executes the specified SQL query using a pooled connection, and returns
+	 * the complete result in a table with typed columns. Exception handling
+	 * is delegated to the caller.
+	 */
+	public ResultTable executeQuery(String statement)
+			throws ClassNotFoundException, SQLException {
+		ResultCursor cursor = openCursor(statement, 0);
+		try {
+			ResultTable result = cursor.createResultTable();
+			while (cursor.nextRow(result))
+				;
+			return result;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Makes sure that the JDBC driver is loaded and returns a connection from
+	 * the pool.
+	 */
+	private Connection getConnection() throws ClassNotFoundException,
+			SQLException {
+		synchronized (this) {
+			if (!driverLoaded) {
+				// needed because our current VPN client does not support IPv6...
+				System.setProperty("java.net.preferIPv4Stack", "true");
+				// make sure that JDBC driver is loaded
+				Class.forName(jdbcDriver);
+				driverLoaded = true;
+			}
+		}
+		return pool.getConnection();
+	}
+
+	/** Gives the connection of a closed cursor back to the pool. */
+	void cursorClosed(ResultCursor cursor, Connection con) {
+		openCursors.remove(cursor);
+		pool.releaseConnection(con);
+	}
+
+	/** Informs the pool about the URL, user, and password currently in use. */
+	private void updatePool() {
+		String url = jdbcUrl;
+		if (server != null)
+			url = url.replace("SERVER", server);
+		if (db != null)
+			url = url.replace("DBNAME", db);
+		pool.setConnectionData(url, user, password);
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Bounded pool of JDBC connections. At most <code>maxSize</code> connections
+ * are handed out at the same time, further requests wait until a connection
+ * is returned. Returned connections are reset to their initial state, i.e.
+ * open transactions are rolled back, auto-commit is enabled, and the initial
+ * catalog is selected again. Idle connections are validated before they are
+ * reused and closed after being unused for longer than the idle timeout.
+ * Changing the connection data invalidates all connections created so far.
+ * Validation and reset are performed without holding the pool lock.
+ *
+ * @author Ruediger Lunde
+ */
+public class DBConnectionPool {
+	private int maxSize = 4;
+	/** Idle time in milliseconds after which connections are closed. */
+	private long idleTimeout = 300000;
+	/** Time in seconds, a connection may need to prove its validity. */
+	private int validationTimeout = 2;
+
+	private String url;
+	private String user;
+	private String password;
+	/** Incremented whenever the connection data changes. */
+	private int generation;
+
+	/** Idle connections, most recently used first. */
+	private final LinkedList<PooledConnection> idleConnections =
+		new LinkedList<PooledConnection>();
+	/** Maps the connections currently in use to their administrative data. */
+	private final Map<Connection, PooledConnection> usedConnections =
+		new IdentityHashMap<Connection, PooledConnection>();
+	/**
+	 * Number of connections which are currently being established or
+	 * validated.
+	 */
+	private int pendingConnections;
+	private Timer evictionTimer;
+
+	/**
+	 * Changes the size and eviction settings of the pool.
+	 *
+	 * @param maxSize
+	 *            Maximal number of connections, which can be in use at the
+	 *            same time.
+	 * @param idleTimeout
+	 *            Time in seconds after which idle connections are closed.
+	 */
+	public synchronized void setPoolData(int maxSize, int idleTimeout) {
+		this.maxSize = Math.max(1, maxSize);
+		this.idleTimeout = Math.max(1, idleTimeout) * 1000L;
+		if (evictionTimer != null) {
+			evictionTimer.cancel();
+			evictionTimer = null;
+		}
+		notifyAll();
+	}
+
+	/** Returns the maximal number of connections handed out at a time. */
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Modifies the data used to establish new connections. If the data
+	 * differs from the previous settings, all idle connections are closed
+	 * and connections in use are closed as soon as they are returned.
+	 */
+	public synchronized void setConnectionData(String url, String user,
+			String password) {
+		if (!equals(this.url, url) || !equals(this.user, user)
+				|| !equals(this.password, password)) {
+			this.url = url;
+			this.user = user;
+			this.password = password;
+			generation++;
+			closeIdleConnections();
+		}
+	}
+
+	/**
+	 * Returns a valid connection. Idle connections are reused if possible.
+	 * If all connections are in use and the pool has reached its maximal
+	 * size, the calling thread waits until a connection is released.
+	 */
+	public Connection getConnection() throws SQLException {
+		PooledConnection idle;
+		while ((idle = takeIdleConnection()) != null) {
+			// validate without blocking other threads
+			boolean valid = isValid(idle.connection);
+			synchronized (this) {
+				pendingConnections--;
+				valid = valid && idle.generation == generation;
+				if (valid)
+					usedConnections.put(idle.connection, idle);
+				else
+					notifyAll();
+			}
+			if (valid)
+				return idle.connection;
+			close(idle.connection);
+		}
+		String url;
+		String user;
+		String password;
+		int gen;
+		synchronized (this) {
+			url = this.url;
+			user = this.user;
+			password = this.password;
+			gen = generation;
+		}
+		// establish the connection without blocking other threads
+		Connection con = null;
+		PooledConnection pc = null;
+		try {
+			con = DriverManager.getConnection(url, user, password);
+			pc = new PooledConnection(con, gen, con.getCatalog());
+		} finally {
+			if (con != null && pc == null)
+				close(con);
+			synchronized (this) {
+				pendingConnections--;
+				if (pc != null) {
+					usedConnections.put(con, pc);
+					startEvictionTimer();
+				} else {
+					notifyAll();
+				}
+			}
+		}
+		return con;
+	}
+
+	/**
+	 * Waits until a connection can be handed out and reserves it by
+	 * incrementing the number of pending connections. Returns an idle
+	 * connection, which must be validated by the caller, or null if a new
+	 * connection must be established.
+	 */
+	private synchronized PooledConnection takeIdleConnection()
+			throws SQLException {
+		while (true) {
+			evictIdleConnections();
+			if (!idleConnections.isEmpty()) {
+				pendingConnections++;
+				return idleConnections.removeFirst();
+			}
+			if (usedConnections.size() + pendingConnections < maxSize) {
+				pendingConnections++;
+				return null;
+			}
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException(
+						"Interrupted while waiting for a connection.", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns a connection to the pool. The connection is reset to its
+	 * initial state before it can be reused. Connections which cannot be
+	 * reset or which have been created with outdated connection data are
+	 * closed.
+	 */
+	public void releaseConnection(Connection con) {
+		PooledConnection pc;
+		boolean current;
+		synchronized (this) {
+			pc = usedConnections.get(con);
+			current = pc != null && pc.generation == generation;
+		}
+		if (pc == null)
+			return;
+		boolean reusable = current && reset(pc);
+		synchronized (this) {
+			usedConnections.remove(con);
+			reusable = reusable && pc.generation == generation;
+			if (reusable) {
+				pc.lastUsed = System.currentTimeMillis();
+				idleConnections.addFirst(pc);
+			}
+			notifyAll();
+		}
+		if (!reusable)
+			close(con);
+	}
+
+	/** Closes all idle connections. */
+	public synchronized void closeIdleConnections() {
+		for (PooledConnection pc : idleConnections)
+			close(pc.connection);
+		idleConnections.clear();
+	}
+
+	/** Closes all idle connections and stops the eviction timer. */
+	public synchronized void close() {
+		closeIdleConnections();
+		if (evictionTimer != null) {
+			evictionTimer.cancel();
+			evictionTimer = null;
+		}
+	}
+
+	/** Closes all connections, which have been idle for too long. */
+	private synchronized void evictIdleConnections() {
+		long limit = System.currentTimeMillis() - idleTimeout;
+		Iterator<PooledConnection> iter = idleConnections.iterator();
+		while (iter.hasNext()) {
+			PooledConnection pc = iter.next();
+			if (pc.lastUsed < limit) {
+				close(pc.connection);
+				iter.remove();
+			}
+		}
+	}
+
+	/** Makes sure that idle connections are closed even without pool usage. */
+	private void startEvictionTimer() {
+		if (evictionTimer == null) {
+			evictionTimer = new Timer("DBConnectionPool-Eviction", true);
+			long period = Math.max(1000, idleTimeout / 2);
+			evictionTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					evictIdleConnections();
+				}
+			}, period, period);
+		}
+	}
+
+	/**
+	 * Checks whether a connection can still be used. Drivers which do not
+	 * support JDBC 4 validation are only asked whether the connection has
+	 * been closed.
+	 */
+	private boolean isValid(Connection con) {
+		try {
+			return con.isValid(validationTimeout);
+		} catch (AbstractMethodError e) {
+			return !isClosed(con);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Rolls back open transactions, enables auto-commit, and selects the
+	 * initial catalog again. Returns false if the connection cannot be
+	 * reset.
+	 */
+	private boolean reset(PooledConnection pc) {
+		Connection con = pc.connection;
+		try {
+			if (con.isClosed())
+				return false;
+			if (!con.getAutoCommit()) {
+				con.rollback();
+				con.setAutoCommit(true);
+			}
+			if (pc.catalog != null && !pc.catalog.equals(con.getCatalog()))
+				con.setCatalog(pc.catalog);
+			return true;
+		} catch (SQLException e) {
+			return false;
+		} catch (AbstractMethodError e) {
+			return false;
+		}
+	}
+
+	private boolean isClosed(Connection con) {
+		try {
+			return con.isClosed();
+		} catch (SQLException e) {
+			return true;
+		}
+	}
+
+	private void close(Connection con) {
+		try {
+			con.close();
+		} catch (SQLException e) {
+			// connection is not used anymore anyway...
+		}
+	}
+
+	private static boolean equals(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+
+	/** Connection together with some administrative data. */
+	private static class PooledConnection {
+		Connection connection;
+		int generation;
+		/** Catalog selected after the connection was established. */
+		String catalog;
+		long lastUsed;
+
+		PooledConnection(Connection con, int generation, String catalog) {
+			this.connection = con;
+			this.generation = generation;
+			this.catalog = catalog;
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+}
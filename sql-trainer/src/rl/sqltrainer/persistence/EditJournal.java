@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.util.exceptions.ErrorHandler;
+import rl.util.exceptions.PersistenceException;
+
+/**
+ * Append-only journal of answer and solution edits, which is maintained next
+ * to an exercise set file. It allows to restore edits which have not been
+ * saved when the application terminated unexpectedly. Records are written by
+ * a background thread. All records arriving within the sync delay are
+ * written together and forced to disk with one sync operation.
+ * <p>
+ * The file starts with a magic number and a format version. Each record
+ * consists of its length, the payload (kind, exercise index, exercise ID,
+ * last edit info, text), and a CRC32 checksum of the payload. Strings are
+ * stored as length-prefixed UTF-8 byte sequences. Replay stops at the first
+ * incomplete or damaged record, which is the normal result of a crash while
+ * writing.
+ * </p>
+ * <p>
+ * The journal is not protected against manipulation. Therefore, replay only
+ * restores texts: The recorded last edit info is ignored, restored answers
+ * get the current time as last edit info, and solutions are not restored
+ * into exercise sets with protected solutions.
+ * </p>
+ *
+ * @author Ruediger Lunde
+ */
+public class EditJournal {
+	private static final int MAGIC = 0x53514c4a; // "SQLJ"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final byte ANSWER = 1;
+	private static final byte SOLUTION = 2;
+	private static final String UTF8 = "UTF-8";
+
+	private final File file;
+	private final int syncDelay;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final ScheduledExecutorService executor;
+	/** Encoded records waiting for the next flush. Access synchronized. */
+	private final List<byte[]> pendingRecords = new ArrayList<byte[]>();
+	private boolean flushScheduled;
+	private boolean failed;
+	private int replayedEdits;
+
+	/** Returns the journal file which belongs to an exercise set file. */
+	public static File getJournalFile(File exSetFile) {
+		String fName = exSetFile.getPath();
+		if (fName.endsWith(".xml"))
+			fName = fName.substring(0, fName.length() - 4);
+		else if (fName.endsWith(BinaryFileHandler.FILE_EXTENSION))
+			fName = fName.substring(0, fName.length()
+					- BinaryFileHandler.FILE_EXTENSION.length());
+		return new File(fName + ".journal");
+	}
+
+	/**
+	 * Opens or creates a journal. Edits recorded in a previous session are
+	 * applied to the given exercise set. Records which refer to a different
+	 * exercise at the recorded position and solution records for exercise
+	 * sets with password are skipped. A damaged end of the
+	 * journal is removed.
+	 *
+	 * @param file
+	 *            The journal file.
+	 * @param exSet
+	 *            The exercise set which was loaded from the corresponding
+	 *            exercise set file.
+	 * @param syncDelay
+	 *            Maximal time in milliseconds between recording an edit and
+	 *            forcing it to disk.
+	 */
+	public EditJournal(File file, ExerciseSet exSet, int syncDelay)
+			throws PersistenceException {
+		this.file = file;
+		this.syncDelay = syncDelay;
+		try {
+			raf = new RandomAccessFile(file, "rw");
+			channel = raf.getChannel();
+			try {
+				if (raf.length() == 0) {
+					raf.writeInt(MAGIC);
+					raf.writeInt(VERSION);
+					channel.force(false);
+				} else {
+					replay(exSet);
+				}
+			} catch (IOException e) {
+				raf.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Could not open edit journal "
+					+ file + ".", e);
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread result = new Thread(r, "EditJournal");
+						result.setDaemon(true);
+						return result;
+					}
+				});
+	}
+
+	/** Returns the number of edits restored when opening the journal. */
+	public int getReplayedEdits() {
+		return replayedEdits;
+	}
+
+	/** Records the current answer of the specified exercise. */
+	public void recordAnswer(ExerciseSet exSet, int exIdx) {
+		record(ANSWER, exIdx, exSet.getExercise(exIdx).getID(), exSet
+				.getLastEdit(), exSet.getExercise(exIdx).getAnswer());
+	}
+
+	/** Records the current solution of the specified exercise. */
+	public void recordSolution(ExerciseSet exSet, int exIdx) {
+		record(SOLUTION, exIdx, exSet.getExercise(exIdx).getID(), "", exSet
+				.getExercise(exIdx).getSolution());
+	}
+
+	/**
+	 * Removes all records. To be called after the exercise set has been
+	 * saved, because the file contains all recorded edits then.
+	 */
+	public void clear() throws PersistenceException {
+		synchronized (pendingRecords) {
+			pendingRecords.clear();
+		}
+		runAndWait(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					channel.truncate(HEADER_SIZE);
+					channel.force(false);
+				} catch (IOException e) {
+					handleFailure(e);
+				}
+			}
+		});
+	}
+
+	/** Writes pending records and closes the journal. */
+	public void close() throws PersistenceException {
+		runAndWait(new Runnable() {
+			@Override
+			public void run() {
+				flush();
+			}
+		});
+		executor.shutdown();
+		try {
+			raf.close();
+		} catch (IOException e) {
+			throw new PersistenceException("Could not close edit journal.", e);
+		}
+	}
+
+	/** Closes the journal and deletes the journal file. */
+	public void delete() throws PersistenceException {
+		synchronized (pendingRecords) {
+			pendingRecords.clear();
+		}
+		close();
+		if (!file.delete())
+			throw new PersistenceException("Could not delete edit journal "
+					+ file + ".");
+	}
+
+	/** Encodes a record and schedules writing if necessary. */
+	private void record(byte kind, int exIdx, String exID, String lastEdit,
+			String text) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(kind);
+			out.writeInt(exIdx);
+			writeString(out, exID);
+			writeString(out, lastEdit);
+			writeString(out, text);
+			out.close();
+			byte[] payload = bytes.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			ByteBuffer record = ByteBuffer.allocate(payload.length + 12);
+			record.putInt(payload.length);
+			record.put(payload);
+			record.putLong(crc.getValue());
+			synchronized (pendingRecords) {
+				if (failed)
+					return;
+				pendingRecords.add(record.array());
+				if (!flushScheduled) {
+					flushScheduled = true;
+					executor.schedule(new Runnable() {
+						@Override
+						public void run() {
+							flush();
+						}
+					}, syncDelay, TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (IOException e) {
+			handleFailure(e);
+		}
+	}
+
+	/** Appends all pending records and forces them to disk. */
+	private void flush() {
+		List<byte[]> records;
+		synchronized (pendingRecords) {
+			records = new ArrayList<byte[]>(pendingRecords);
+			pendingRecords.clear();
+			flushScheduled = false;
+		}
+		if (!records.isEmpty()) {
+			try {
+				ByteBuffer[] buffers = new ByteBuffer[records.size()];
+				for (int i = 0; i < buffers.length; i++)
+					buffers[i] = ByteBuffer.wrap(records.get(i));
+				channel.position(channel.size());
+				while (buffers[buffers.length - 1].hasRemaining())
+					channel.write(buffers);
+				channel.force(false);
+			} catch (IOException e) {
+				handleFailure(e);
+			}
+		}
+	}
+
+	/** Stops recording and informs the user. */
+	private void handleFailure(IOException e) {
+		synchronized (pendingRecords) {
+			if (failed)
+				return;
+			failed = true;
+			pendingRecords.clear();
+		}
+		ErrorHandler.getInstance().handleWarning(new PersistenceException(
+				"Writing edit journal " + file + " failed.", e));
+	}
+
+	/** Executes a task in the journal thread after all pending tasks. */
+	private void runAndWait(Runnable task) throws PersistenceException {
+		try {
+			executor.submit(task).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PersistenceException("Edit journal interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new PersistenceException("Edit journal operation failed.",
+					e.getCause());
+		}
+	}
+
+	/**
+	 * Applies all intact records to the exercise set and truncates the
+	 * journal behind the last intact record.
+	 */
+	private void replay(ExerciseSet exSet) throws IOException {
+		if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC)
+			throw new IOException("Not an edit journal.");
+		int version = raf.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported edit journal version "
+					+ version + ".");
+		long validEnd = HEADER_SIZE;
+		long length = raf.length();
+		while (length - validEnd >= 4) {
+			int payloadLength = raf.readInt();
+			if (payloadLength < 0 || payloadLength + 12 > length - validEnd)
+				break;
+			byte[] payload = new byte[payloadLength];
+			raf.readFully(payload);
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			if (raf.readLong() != crc.getValue())
+				break;
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+					payload));
+			byte kind = in.readByte();
+			int exIdx = in.readInt();
+			String exID = readString(in);
+			readString(in); // last edit info, not trusted
+			String text = readString(in);
+			if (exIdx < exSet.size()
+					&& exSet.getExercise(exIdx).getID().equals(exID)) {
+				if (kind == ANSWER) {
+					exSet.setAnswer(exIdx, text);
+					replayedEdits++;
+				} else if (kind == SOLUTION && exSet.getPasswd().isEmpty()) {
+					exSet.getExercise(exIdx).setSolution(text);
+					replayedEdits++;
+				}
+			}
+			validEnd = raf.getFilePointer();
+		}
+		if (validEnd < length) {
+			channel.truncate(validEnd);
+			channel.force(false);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+}
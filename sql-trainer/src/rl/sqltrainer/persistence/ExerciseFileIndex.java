@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import rl.util.exceptions.PersistenceException;
+
+/**
+ * Byte offset index of the exercise elements of an exercise set XML file.
+ * The file is read once and scanned for tags without parsing text contents;
+ * only the index data is kept afterwards. Besides the
+ * offsets, the index provides the start tag and the answer element of
+ * each exercise as well as the part of the file preceding the first
+ * exercise, so that exercise labels and the integrity check are available
+ * without reading question and solution texts. The scanner works for all
+ * encodings which represent markup characters by single ASCII bytes.
+ *
+ * @author Ruediger Lunde
+ */
+class ExerciseFileIndex {
+	private final File file;
+	private final long lastModified;
+	private final long length;
+	private final String encoding;
+	/** Prolog, root element start tag, and intro, closed by a root end tag. */
+	private byte[] header;
+	private final List<long[]> positions = new ArrayList<long[]>();
+	private final List<byte[]> startTags = new ArrayList<byte[]>();
+	private final List<byte[]> answers = new ArrayList<byte[]>();
+
+	private ExerciseFileIndex(File file, String encoding) {
+		this.file = file;
+		this.lastModified = file.lastModified();
+		this.length = file.length();
+		this.encoding = encoding;
+	}
+
+	/**
+	 * Scans the given file. Returns null if the encoding of the file is not
+	 * supported by the scanner.
+	 */
+	static ExerciseFileIndex create(File file, String encoding)
+			throws IOException {
+		if (encoding == null)
+			encoding = "UTF-8";
+		if (!Charset.isSupported(encoding)
+				|| !Arrays.equals("<!-/?>\"'".getBytes(encoding),
+						new byte[] { '<', '!', '-', '/', '?', '>', '"', '\'' }))
+			return null;
+		ExerciseFileIndex result = new ExerciseFileIndex(file, encoding);
+		byte[] data = new byte[(int) result.length];
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.readFully(data);
+		} finally {
+			raf.close();
+		}
+		result.scan(new Scanner(data));
+		return result;
+	}
+
+	String getEncoding() {
+		return encoding;
+	}
+
+	byte[] getHeader() {
+		return header;
+	}
+
+	/** Returns the number of indexed exercises. */
+	int size() {
+		return positions.size();
+	}
+
+	/** Returns the start tag of the exercise, written as empty element. */
+	byte[] getStartTag(int exIdx) {
+		return startTags.get(exIdx);
+	}
+
+	/** Returns the answer element of the exercise or null. */
+	byte[] getAnswer(int exIdx) {
+		return answers.get(exIdx);
+	}
+
+	/**
+	 * Reads the complete exercise element from the file.
+	 * @throws PersistenceException if the file has been modified since
+	 *         indexing.
+	 */
+	byte[] readExercise(int exIdx) throws PersistenceException {
+		if (file.lastModified() != lastModified || file.length() != length)
+			throw new PersistenceException("File " + file
+					+ " has been modified.");
+		long[] pos = positions.get(exIdx);
+		byte[] result = new byte[(int) (pos[1] - pos[0])];
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				raf.seek(pos[0]);
+				raf.readFully(result);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Could not read exercise from "
+					+ file + ".", e);
+		}
+		return result;
+	}
+
+	/** Records the positions of exercise and answer elements. */
+	private void scan(Scanner scanner) throws IOException {
+		int depth = 0;
+		int exStart = -1;
+		int answerStart = -1;
+		while (scanner.nextTag()) {
+			String name = scanner.getTagName();
+			if (scanner.isEndTag()) {
+				depth--;
+				if (depth == 1 && name.equals("exercise")) {
+					positions.add(new long[] { exStart, scanner.getPosition() });
+					if (answers.size() < positions.size())
+						answers.add(null);
+					exStart = -1;
+				} else if (depth == 2 && answerStart >= 0) {
+					answers.add(scanner.getBytes(answerStart));
+					answerStart = -1;
+				}
+			} else {
+				if (depth == 1) {
+					if (name.equals("exercise")) {
+						if (scanner.isEmptyTag())
+							throw new IOException("Empty exercise element.");
+						if (header == null) {
+							ByteArrayOutputStream bytes =
+								new ByteArrayOutputStream();
+							bytes.write(scanner.getBytes(0, scanner.getTagStart()));
+							bytes.write("</exercise-set>".getBytes(encoding));
+							header = bytes.toByteArray();
+						}
+						exStart = scanner.getTagStart();
+						startTags.add(scanner.getEmptyTag());
+					} else if (!name.equals("intro")) {
+						throw new IOException("Unexpected element " + name
+								+ ".");
+					}
+				} else if (depth == 2 && exStart >= 0 && name.equals("answer")
+						&& !scanner.isEmptyTag()
+						&& answers.size() < startTags.size()) {
+					answerStart = scanner.getTagStart();
+				}
+				if (!scanner.isEmptyTag())
+					depth++;
+			}
+		}
+		if (depth != 0)
+			throw new IOException("Unexpected end of file.");
+	}
+
+	/**
+	 * Simple tag scanner for a byte array, which keeps track of the current
+	 * position. Comments, CDATA sections, processing instructions, and
+	 * document type declarations are skipped.
+	 */
+	private static class Scanner {
+		private static final int START_TAG = 1;
+		private static final int END_TAG = 2;
+		private static final int EMPTY_TAG = 3;
+
+		private final byte[] data;
+		private int position;
+		private int tagStart;
+		private int kind;
+
+		Scanner(byte[] data) {
+			this.data = data;
+		}
+
+		int getPosition() {
+			return position;
+		}
+
+		int getTagStart() {
+			return tagStart;
+		}
+
+		boolean isEndTag() {
+			return kind == END_TAG;
+		}
+
+		boolean isEmptyTag() {
+			return kind == EMPTY_TAG;
+		}
+
+		/** Returns the bytes from the given position up to the current one. */
+		byte[] getBytes(int from) {
+			return getBytes(from, position);
+		}
+
+		byte[] getBytes(int from, int to) {
+			return Arrays.copyOfRange(data, from, to);
+		}
+
+		/** Returns the name of the current start or end tag. */
+		String getTagName() {
+			int from = tagStart + (isEndTag() ? 2 : 1);
+			int to = from;
+			while (to < position && data[to] != '>' && data[to] != '/'
+					&& data[to] > ' ')
+				to++;
+			try {
+				return new String(data, from, to - from, "US-ASCII");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/** Returns the current start tag, with "/>" as closing characters. */
+		byte[] getEmptyTag() {
+			if (kind == EMPTY_TAG)
+				return getBytes(tagStart);
+			byte[] result = Arrays.copyOfRange(data, tagStart, position + 1);
+			result[result.length - 2] = '/';
+			result[result.length - 1] = '>';
+			return result;
+		}
+
+		/**
+		 * Advances to the next start or end tag. Returns false at the end of
+		 * the data.
+		 */
+		boolean nextTag() throws IOException {
+			kind = 0;
+			while (kind == 0) {
+				while (position < data.length && data[position] != '<')
+					position++;
+				if (position == data.length)
+					return false;
+				tagStart = position++;
+				int b = read();
+				if (b == '!') {
+					b = read();
+					if (b == '-') {
+						read();
+						skipTo("-->");
+					} else if (b == '[') {
+						skipTo("]]>");
+					} else {
+						skipDeclaration(b);
+					}
+				} else if (b == '?') {
+					skipTo("?>");
+				} else {
+					readTag();
+					if (b == '/')
+						kind = END_TAG;
+					else if (data[position - 2] == '/')
+						kind = EMPTY_TAG;
+					else
+						kind = START_TAG;
+				}
+			}
+			return true;
+		}
+
+		/** Reads the rest of a tag, attribute values may contain '>'. */
+		private void readTag() throws IOException {
+			int quote = 0;
+			int b;
+			do {
+				b = read();
+				if (quote != 0) {
+					if (b == quote)
+						quote = 0;
+				} else if (b == '"' || b == '\'') {
+					quote = b;
+				}
+			} while (quote != 0 || b != '>');
+		}
+
+		/** Skips a document type declaration with optional internal subset. */
+		private void skipDeclaration(int b) throws IOException {
+			int brackets = 0;
+			int quote = 0;
+			while (quote != 0 || brackets > 0 || b != '>') {
+				if (quote != 0) {
+					if (b == quote)
+						quote = 0;
+				} else if (b == '"' || b == '\'') {
+					quote = b;
+				} else if (b == '[') {
+					brackets++;
+				} else if (b == ']') {
+					brackets--;
+				}
+				b = read();
+			}
+		}
+
+		private void skipTo(String end) throws IOException {
+			int matched = 0;
+			while (matched < end.length()) {
+				int b = read();
+				if (b == end.charAt(matched))
+					matched++;
+				else if (b != end.charAt(0))
+					matched = 0;
+				else if (matched != 2 || end.charAt(1) != b)
+					matched = 1; // "-->" and "]]>" keep two matched chars
+			}
+		}
+
+		private int read() throws IOException {
+			if (position == data.length)
+				throw new IOException("Unexpected end of file.");
+			return data[position++];
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rl.sqltrainer.domain.ResultTable;
+import rl.sqltrainer.domain.ResultTable.ColumnType;
+
+/**
+ * Provides row-by-row access to the result of a query. Rows are fetched
+ * lazily from the database in chunks of the configured fetch size, so that
+ * large results never have to be held in memory as a whole. If a row limit is
+ * specified, the cursor stops after the limit has been reached and reports
+ * the result as truncated. Rows can be read as lists of strings or into a
+ * result table with typed columns. In the latter case, numeric values are
+ * read without converting them into strings. The cursor must be closed after
+ * use.
+ *
+ * @author Ruediger Lunde
+ */
+public class ResultCursor {
+	private final DBConnectionHandler handler;
+	private Connection connection;
+	private volatile Statement statement;
+	private ResultSet resultSet;
+	private List<String> columnNames;
+	private ColumnType[] columnTypes;
+	private int[] columnScales;
+	/** Maximal number of rows to be delivered, 0 means no limit. */
+	private final int maxRows;
+	private int rowCount;
+	private boolean truncated;
+	private boolean finished;
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a statement on the given connection. The connection is given
+	 * back to the handler when the cursor is closed, which also happens if
+	 * the statement cannot be created.
+	 * 
+	 * @param queryTimeout
+	 *            Time in seconds the database may spend on executing the
+	 *            query, 0 means no limit.
+	 */
+	ResultCursor(DBConnectionHandler handler, Connection con, int fetchSize,
+			int maxRows, int queryTimeout) throws SQLException {
+		this.handler = handler;
+		this.connection = con;
+		this.maxRows = maxRows;
+		try {
+			statement = con.createStatement();
+			if (fetchSize > 0)
+				statement.setFetchSize(fetchSize);
+			if (maxRows > 0)
+				// one more row to detect truncation, 0 means no limit
+				statement.setMaxRows(maxRows < Integer.MAX_VALUE ? maxRows + 1
+						: 0);
+			if (queryTimeout > 0)
+				statement.setQueryTimeout(queryTimeout);
+		} catch (SQLException e) {
+			closeQuietly();
+			throw e;
+		} catch (RuntimeException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	/**
+	 * Executes the query and reads the column names. If execution fails, the
+	 * cursor is closed.
+	 */
+	void execute(String query) throws SQLException {
+		try {
+			checkCancelled();
+			resultSet = statement.executeQuery(query);
+			ResultSetMetaData metadata = resultSet.getMetaData();
+			int colCount = metadata.getColumnCount();
+			List<String> names = new ArrayList<String>(colCount);
+			columnTypes = new ColumnType[colCount];
+			columnScales = new int[colCount];
+			for (int i = 0; i < colCount; i++) {
+				names.add(metadata.getColumnName(i + 1));
+				columnTypes[i] = getColumnType(metadata.getColumnType(i + 1),
+						metadata.isSigned(i + 1));
+				if (columnTypes[i] == ColumnType.DECIMAL)
+					columnScales[i] = metadata.getScale(i + 1);
+			}
+			columnNames = Collections.unmodifiableList(names);
+		} catch (SQLException e) {
+			closeQuietly();
+			throw e;
+		} catch (RuntimeException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	/** Returns the names of the result columns. */
+	public List<String> getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * Creates an empty result table with columns, whose types correspond to
+	 * the column types of the result.
+	 */
+	public ResultTable createResultTable() {
+		ResultTable result = new ResultTable();
+		for (int i = 0; i < columnTypes.length; i++)
+			result.addColumn(columnNames.get(i), columnTypes[i],
+					columnScales[i]);
+		return result;
+	}
+
+	/**
+	 * Returns the next row of the result or null if all rows have been
+	 * delivered or the row limit has been reached.
+	 */
+	public List<String> nextRow() throws SQLException {
+		List<String> result = null;
+		if (advance()) {
+			int colCount = columnNames.size();
+			result = new ArrayList<String>(colCount);
+			for (int i = 0; i < colCount; i++)
+				result.add(resultSet.getString(i + 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Appends the next row of the result to the given table, which must have
+	 * been created by {@link #createResultTable()}. Returns false if all
+	 * rows have been delivered or the row limit has been reached.
+	 */
+	public boolean nextRow(ResultTable table) throws SQLException {
+		if (!advance())
+			return false;
+		for (int i = 0; i < columnTypes.length; i++) {
+			switch (columnTypes[i]) {
+			case INTEGER:
+				long lValue = resultSet.getLong(i + 1);
+				if (resultSet.wasNull())
+					table.addNull(i);
+				else
+					table.addLong(i, lValue);
+				break;
+			case DECIMAL:
+				table.addDecimal(i, resultSet.getBigDecimal(i + 1));
+				break;
+			case REAL:
+				float fValue = resultSet.getFloat(i + 1);
+				if (resultSet.wasNull())
+					table.addNull(i);
+				else
+					table.addDouble(i, fValue);
+				break;
+			case DOUBLE:
+				double dValue = resultSet.getDouble(i + 1);
+				if (resultSet.wasNull())
+					table.addNull(i);
+				else
+					table.addDouble(i, dValue);
+				break;
+			default:
+				table.addString(i, resultSet.getString(i + 1));
+			}
+		}
+		table.endRow();
+		return true;
+	}
+
+	/**
+	 * Moves the result set to the next row. Returns false if all rows have
+	 * been delivered or the row limit has been reached.
+	 */
+	private boolean advance() throws SQLException {
+		checkCancelled();
+		if (!finished) {
+			if (resultSet.next()) {
+				if (maxRows > 0 && rowCount == maxRows) {
+					truncated = true;
+					finished = true;
+				} else {
+					rowCount++;
+					return true;
+				}
+			} else {
+				finished = true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Maps SQL column types to result table column types. Unsigned 64 bit
+	 * integers may not fit into a long, so they are treated like decimals.
+	 */
+	private static ColumnType getColumnType(int sqlType, boolean signed) {
+		switch (sqlType) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return ColumnType.INTEGER;
+		case Types.BIGINT:
+			return signed ? ColumnType.INTEGER : ColumnType.DECIMAL;
+		case Types.DECIMAL:
+		case Types.NUMERIC:
+			return ColumnType.DECIMAL;
+		case Types.REAL:
+			return ColumnType.REAL;
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return ColumnType.DOUBLE;
+		default:
+			return ColumnType.TEXT;
+		}
+	}
+
+	/** Returns the number of rows delivered so far. */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Checks whether the result contains more rows than the cursor was allowed
+	 * to deliver. The information is available after <code>nextRow</code>
+	 * returned null.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/** Closes the cursor without reporting secondary exceptions. */
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (SQLException e) {
+			// the original exception is more interesting...
+		}
+	}
+
+	/**
+	 * Asks the database to abort the execution of the query. This method can
+	 * be called by any thread. The thread which is currently executing the
+	 * query or reading rows will receive an <code>SQLException</code>.
+	 */
+	public void cancel() {
+		cancelled = true;
+		Statement stmt = statement;
+		if (stmt != null) {
+			try {
+				stmt.cancel();
+			} catch (SQLException e) {
+				// statement has already been finished or closed...
+			}
+		}
+	}
+
+	/** Checks whether {@link #cancel()} has been called. */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/** Makes sure that cancelled cursors do not deliver any more rows. */
+	private void checkCancelled() throws SQLException {
+		if (cancelled)
+			throw new SQLException("Statement execution cancelled.");
+	}
+
+	/**
+	 * Closes result set and statement and gives the connection back to the
+	 * handler. Calling this method more than once has no effect.
+	 */
+	public void close() throws SQLException {
+		try {
+			if (resultSet != null)
+				resultSet.close();
+			if (statement != null)
+				statement.close();
+		} finally {
+			resultSet = null;
+			statement = null;
+			finished = true;
+			if (connection != null) {
+				handler.cursorClosed(this, connection);
+				connection = null;
+			}
+		}
+	}
+}
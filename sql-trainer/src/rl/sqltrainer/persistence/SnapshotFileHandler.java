@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import rl.sqltrainer.domain.ResultTable;
+import rl.sqltrainer.domain.ResultTable.ColumnType;
+import rl.sqltrainer.domain.SolutionSnapshot;
+import rl.util.exceptions.PersistenceException;
+
+/**
+ * Reads and writes solution snapshots in a compact binary format. Snapshot
+ * files are stored next to the XML file of the corresponding exercise set.
+ * The file starts with a magic number, a format version, and the hash value
+ * over the solutions of the exercise set, followed by the entries. Each
+ * entry consists of database name, solution hash, column count, name, type
+ * and scale of each column, row count and the values row by row. Strings
+ * are stored as length-prefixed UTF-8 byte sequences, length -1 denotes
+ * null.
+ *
+ * @author Ruediger Lunde
+ */
+public class SnapshotFileHandler {
+	private static final int MAGIC = 0x53514c53; // "SQLS"
+	private static final int VERSION = 1;
+	private static final String UTF8 = "UTF-8";
+
+	/**
+	 * Returns the snapshot file which belongs to an exercise set file (XML or
+	 * binary).
+	 */
+	public static File getSnapshotFile(File xmlFile) {
+		String fName = xmlFile.getPath();
+		if (fName.endsWith(".xml"))
+			fName = fName.substring(0, fName.length() - 4);
+		else if (fName.endsWith(BinaryFileHandler.FILE_EXTENSION))
+			fName = fName.substring(0, fName.length()
+					- BinaryFileHandler.FILE_EXTENSION.length());
+		return new File(fName + ".snapshot");
+	}
+
+	/** Loads a snapshot from a binary file. */
+	public SolutionSnapshot loadSnapshot(File file) throws PersistenceException {
+		SolutionSnapshot result = null;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			if (in.readInt() != MAGIC)
+				throw new PersistenceException("Not a solution snapshot file: "
+						+ file);
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new PersistenceException(
+						"Unsupported solution snapshot version " + version + ".");
+			result = new SolutionSnapshot(readString(in));
+			int entryCount = in.readInt();
+			for (int i = 0; i < entryCount; i++) {
+				String dbName = readString(in);
+				String solutionHash = readString(in);
+				int colCount = in.readInt();
+				ResultTable table = new ResultTable();
+				for (int c = 0; c < colCount; c++) {
+					String name = readString(in);
+					ColumnType type = ColumnType.valueOf(readString(in));
+					table.addColumn(name, type, in.readInt());
+				}
+				int rowCount = in.readInt();
+				for (int r = 0; r < rowCount; r++) {
+					for (int c = 0; c < colCount; c++)
+						table.addFormatted(c, readString(in));
+					table.endRow();
+				}
+				result.addEntry(dbName, solutionHash, table);
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Could not read solution snapshot.",
+					e);
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException("Damaged solution snapshot.", e);
+		} finally {
+			close(in);
+		}
+		return result;
+	}
+
+	/** Saves a snapshot to a binary file. */
+	public void saveSnapshot(File file, SolutionSnapshot snapshot)
+			throws PersistenceException {
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, snapshot.getSolutionsHash());
+			out.writeInt(snapshot.size());
+			for (SolutionSnapshot.Entry entry : snapshot.getEntries()) {
+				ResultTable table = entry.getTable();
+				int colCount = table.getColumnCount();
+				writeString(out, entry.getDBName());
+				writeString(out, entry.getSolutionHash());
+				out.writeInt(colCount);
+				for (int c = 0; c < colCount; c++) {
+					writeString(out, table.getColumnNames().get(c));
+					writeString(out, table.getColumnType(c).name());
+					out.writeInt(table.getColumnScale(c));
+				}
+				out.writeInt(table.getRowCount());
+				for (int r = 0; r < table.getRowCount(); r++)
+					for (int c = 0; c < colCount; c++)
+						writeString(out, table.getValue(r, c));
+			}
+			out.close();
+			out = null;
+		} catch (IOException e) {
+			throw new PersistenceException("Could not save solution snapshot.",
+					e);
+		} finally {
+			close(out);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static void close(Closeable stream) {
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				// nothing left to save...
+			}
+		}
+	}
+}
@@ -1,357 +1,708 @@
-/*
- * Copyright (C) 2008-2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.sqltrainer.persistence;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.StringReader;
-import java.io.StringWriter;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.Text;
-import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-
-import rl.sqltrainer.domain.Exercise;
-import rl.sqltrainer.domain.ExerciseSet;
-import rl.util.exceptions.EncryptionException;
-import rl.util.exceptions.ErrorHandler;
-import rl.util.exceptions.PersistenceException;
-import rl.util.security.SecureHashService;
-
-/**
- * This class implements transformations between internal object-oriented
- * representations and external XML representations of domain objects for the
- * SQL Trainer.
- * 
- * @author Ruediger Lunde
- */
-public class XMLFileHandler {
-	/** Local path for accessing DTDs and XSLT-files. */
-	private static File DTD_PATH = new File("xml");
-
-	/** Sets the local path for accessing DTDs and XSLT-files. */
-	public static void setDtdPath(File path) {
-		DTD_PATH = path;
-	}
-
-	/** Loads an exercise set from an XML file. */
-	public ExerciseSet loadExerciseSet(File file) throws PersistenceException {
-		ExerciseSet result = null;
-		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory
-					.newInstance();
-			factory.setValidating(true);
-			// factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			builder.setEntityResolver(new MyEntityResolver());
-			builder.setErrorHandler(new MyErrorHandler());
-			Document doc = builder.parse(file);
-			boolean containsAnswers = false;
-			Node node = doc.getElementsByTagName("exercise-set").item(0);
-			String hashA = getAttValue(node, "hasha");
-
-			result = new ExerciseSet(getAttValue(node, "editor"), getAttValue(
-					node, "lastEdit"), getAttValue(node, "hashs"), getAttValue(
-					node, "passwd"));
-			result.setData(getAttValue(node, "course"),
-					getAttValue(node, "lecturer"), getAttValue(node, "id"),
-					getAttValue(node, "db"));
-
-			node = doc.getElementsByTagName("intro").item(0);
-			result.setIntro(getXMLData(node));
-			NodeList eNodes = doc.getElementsByTagName("exercise");
-			for (int i = 0; i < eNodes.getLength(); i++) {
-				Exercise ex = readExercise(eNodes.item(i));
-				containsAnswers |= !ex.getAnswer().isEmpty();
-				result.addExercise(ex);
-			}
-			if (containsAnswers && !hashA.equals(computeHashValue(result)))
-				result.setEditor("??");
-		} catch (Exception e) {
-			PersistenceException pe = new PersistenceException(
-					"Loading exercise set " + file + " failed.", e);
-			throw pe;
-		}
-		return result;
-	}
-
-	/**
-	 * Helper method for accessing attributes. If the specified attribute does
-	 * not exist, the empty string is returned.
-	 */
-	private String getAttValue(Node node, String attName) {
-		String result = "";
-		Node att = node.getAttributes().getNamedItem(attName);
-		if (att != null)
-			result = att.getNodeValue();
-		return result;
-	}
-
-	/**
-	 * Creates an <code>Exercise</code> instance using the data provided by the
-	 * DOM node.
-	 */
-	private Exercise readExercise(Node eNode) {
-		NamedNodeMap atts = eNode.getAttributes();
-		String eID = atts.getNamedItem("id").getNodeValue();
-		Exercise.Type type = Exercise.Type.OTHER;
-		String eTheme = "";
-		if (atts.getNamedItem("type") != null
-				&& atts.getNamedItem("type").getNodeValue().equals("sql"))
-			type = Exercise.Type.SQL;
-		if (atts.getNamedItem("theme") != null)
-			eTheme = atts.getNamedItem("theme").getNodeValue();
-		String eQuest = "";
-		String eAnsw = "";
-		String eSol = "";
-		NodeList children = eNode.getChildNodes();
-		for (int j = 0; j < children.getLength(); j++) {
-			Node child = children.item(j);
-			String data = "";
-			if (child.getFirstChild() instanceof Text)
-				data = ((Text) child.getFirstChild()).getData();
-			if (child.getNodeName().equals("question")) {
-				try {
-					eQuest = getXMLData(child);
-				} catch (TransformerException te) {
-					PersistenceException pe = new PersistenceException(
-							"Reading question text of exercise " + eID
-									+ " failed.", te);
-					ErrorHandler.getInstance().handleError(pe);
-					eQuest = data;
-				}
-			} else if (child.getNodeName().equals("answer")) {
-				eAnsw = data;
-			} else if (child.getNodeName().equals("solution")) {
-				eSol = data;
-			}
-		}
-		Exercise result = new Exercise(eID, type, eTheme, eQuest);
-		result.setAnswer(eAnsw);
-		result.setSolution(eSol);
-		return result;
-	}
-
-	/**
-	 * Helper method which transforms a hierarchical node structure into a
-	 * string with XML tags. It is used to convert HTML substructures into a
-	 * String attribute value.
-	 * 
-	 * @throws TransformerException
-	 */
-	private String getXMLData(Node node) throws TransformerException {
-		TransformerFactory tFactory = TransformerFactory.newInstance();
-		Transformer transformer = tFactory.newTransformer();
-		DOMSource source = new DOMSource(node);
-		StringWriter writer = new StringWriter();
-		StreamResult resultStream = new StreamResult(writer);
-		transformer.transform(source, resultStream);
-		String result = writer.toString();
-		String elName = node.getNodeName();
-		int start = result.indexOf("<" + elName + ">");
-		int end = result.indexOf("</" + elName + ">");
-		return start != -1 ? result.substring(start + elName.length() + 2, end)
-				: "";
-	}
-
-	/**
-	 * Writes an XML representation of a specified exercise set to a specified
-	 * file.
-	 * 
-	 * @throws PersistenceException
-	 */
-	public void saveExerciseSet(File file, ExerciseSet exercises)
-			throws PersistenceException {
-		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory
-					.newInstance();
-			// factory.setValidating(true);
-			// factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.newDocument();
-			Element root = doc.createElement("exercise-set");
-			doc.appendChild(root);
-			root.setAttribute("course", exercises.getCourse());
-			root.setAttribute("db", exercises.getDB());
-			root.setAttribute("id", exercises.getID());
-			root.setAttribute("lecturer", exercises.getLecturer());
-			if (exercises.containsAnswers()) {
-				root.setAttribute("editor", exercises.getEditor());
-				root.setAttribute("lastEdit", exercises.getLastEdit());
-				root.setAttribute("hasha", computeHashValue(exercises));
-			}
-			if (!exercises.getPasswd().isEmpty())
-				root.setAttribute("hashs", exercises.getSolHash());
-			root.setAttribute("passwd", exercises.getPasswd());
-			StringReader reader = new StringReader("<intro>"
-					+ exercises.getIntro() + "</intro>");
-			Document tmpDoc = builder.parse(new InputSource(reader));
-			Node introNode = doc.importNode(tmpDoc.getFirstChild(), true);
-			root.appendChild(introNode);
-			for (int i = 0; i < exercises.size(); i++) {
-				Exercise exercise = exercises.getExercise(i);
-				Element exNode = doc.createElement("exercise");
-				root.appendChild(exNode);
-				exNode.setAttribute("id", exercise.getID());
-				if (!exercise.getTheme().isEmpty())
-					exNode.setAttribute("theme", exercise.getTheme());
-				if (exercise.getType() == Exercise.Type.SQL)
-					exNode.setAttribute("type", "sql");
-				reader = new StringReader("<question>" + exercise.getQuestion()
-						+ "</question>");
-				tmpDoc = builder.parse(new InputSource(reader));
-				Node newNode = doc.importNode(tmpDoc.getFirstChild(), true);
-				exNode.appendChild(newNode);
-				if (!exercise.getAnswer().isEmpty()) {
-					newNode = doc.createElement("answer");
-					newNode.setTextContent(exercise.getAnswer());
-					exNode.appendChild(newNode);
-				}
-				if (!exercise.getSolution().isEmpty()) {
-					newNode = doc.createElement("solution");
-					newNode.setTextContent(exercise.getSolution());
-					exNode.appendChild(newNode);
-				}
-			}
-			TransformerFactory tFactory = TransformerFactory.newInstance();
-			Transformer transformer = tFactory.newTransformer();
-			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM,
-					"exercise-set.dtd");
-			DOMSource source = new DOMSource(doc);
-			StreamResult resultStream = new StreamResult(file);
-			transformer.transform(source, resultStream);
-		} catch (Exception e) {
-			PersistenceException pe = new PersistenceException(
-					"Writing exercise set to file " + file + " failed.", e);
-			throw pe;
-		}
-	}
-
-	/**
-	 * Computes a hash value for editing information and answers. The result is
-	 * used to check the integrity of loaded exercise sets.
-	 */
-	private String computeHashValue(ExerciseSet exercises) {
-		String result = "";
-		try {
-			StringBuffer str = new StringBuffer(exercises.getEditor());
-			str.append(exercises.getLastEdit());
-			for (int i = 0; i < exercises.size(); i++)
-				str.append(exercises.getExercise(i).getAnswer());
-			result = SecureHashService.getInstance().encrypt(str.toString());
-		} catch (EncryptionException e) {
-			PersistenceException pe = new PersistenceException(
-					"Could not compute hash value.", e);
-			ErrorHandler.getInstance().handleError(pe);
-		}
-		return result;
-	}
-
-	/**
-	 * Creates a HTML representation for a given XML file.
-	 * 
-	 * @param xmlFile
-	 *            Source file containing exercise set data.
-	 * @param htmlFile
-	 *            Destination file.
-	 * @param withSolutions
-	 *            Controls whether solutions are also printed out.
-	 * @throws PersistenceException
-	 */
-	public void transformExerciseSetToHTML(File xmlFile, File htmlFile,
-			boolean withSolutions) throws PersistenceException {
-		try {
-			String xsl = (withSolutions) ? "exercise-set-with-solutions.xsl"
-					: "exercise-set.xsl";
-			StreamSource stylesheet = new StreamSource(new FileInputStream(
-					new File(DTD_PATH, xsl)));
-			StreamSource src = new StreamSource(new FileInputStream(xmlFile));
-			src.setSystemId(DTD_PATH);
-			StreamResult result = new StreamResult(htmlFile);
-			TransformerFactory factory = TransformerFactory.newInstance();
-			Transformer t = factory.newTransformer(stylesheet);
-			t.transform(src, result);
-		} catch (Exception e) {
-			PersistenceException pe = new PersistenceException(
-					"Generation of the HTML file " + htmlFile + " failed.", e);
-			throw pe;
-		}
-	}
-
-	/**
-	 * Helps the XML parser to find locally stored DTDs.
-	 * 
-	 * @author R. Lunde
-	 */
-	public class MyEntityResolver implements EntityResolver {
-		public InputSource resolveEntity(String publicId, String systemId)
-				throws FileNotFoundException {
-			if (systemId.contains(".dtd")) {
-				// System.out.println("publicId=" + publicId + " systemId=" +
-				// systemId);
-				File file = new File(DTD_PATH, systemId.substring(systemId
-						.lastIndexOf('/')));
-				return new InputSource(new FileInputStream(file));
-			} else {
-				// System.out.println("Other tag found");
-				return null;
-			}
-		}
-	}
-
-	/**
-	 * Simple handler for XML parser exceptions.
-	 * 
-	 * @author R. Lunde
-	 */
-	private static class MyErrorHandler implements org.xml.sax.ErrorHandler {
-		public void warning(SAXParseException ex) {
-			rl.util.exceptions.ErrorHandler.getInstance().handleWarning(ex);
-		}
-
-		public void error(SAXParseException ex) throws SAXException {
-			throw ex;
-		}
-
-		public void fatalError(SAXParseException ex) throws SAXException {
-			throw ex;
-		}
-	}
-
-	// public static void main(String[] args) {
-	// try {
-	// ExerciseSetFileHandler el = new ExerciseSetFileHandler();
-	// ExerciseSet es = el.loadExerciseSet(new
-	// File("exercises/ExerciseSet1.xml"));
-	// System.out.print(es);
-	// } catch (ParserConfigurationException e) {
-	// e.printStackTrace();
-	// } catch (IOException e) {
-	// e.printStackTrace();
-	// } catch (SAXException e) {
-	// e.printStackTrace();
-	// } catch (Exception e) {
-	// e.printStackTrace();
-	// }
-	// }
-}
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.sqltrainer.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import rl.sqltrainer.domain.Exercise;
+import rl.sqltrainer.domain.ExerciseSet;
+import rl.sqltrainer.domain.LazyExercise;
+import rl.util.exceptions.EncryptionException;
+import rl.util.exceptions.ErrorHandler;
+import rl.util.exceptions.PersistenceException;
+import rl.util.security.SecureHashService;
+
+/**
+ * This class implements transformations between internal object-oriented
+ * representations and external XML representations of domain objects for the
+ * SQL Trainer.
+ * 
+ * @author Ruediger Lunde
+ */
+public class XMLFileHandler {
+	/** Local path for accessing DTDs and XSLT-files. */
+	private static File DTD_PATH = new File("xml");
+
+	/**
+	 * Factory for streaming XML readers. DTDs are not loaded, the document
+	 * structure is checked by the loader itself. Access must be
+	 * synchronized.
+	 */
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	/**
+	 * Compiled stylesheets by file. An entry is reused as long as the
+	 * modification time of the file has not changed. Access must be
+	 * synchronized.
+	 */
+	private static final Map<File, CachedTemplates> TEMPLATES =
+		new HashMap<File, CachedTemplates>();
+
+	/** Sets the local path for accessing DTDs and XSLT-files. */
+	public static void setDtdPath(File path) {
+		DTD_PATH = path;
+	}
+
+	/**
+	 * Loads an exercise set from an XML file. The file is read in one
+	 * streaming pass with a StAX parser. The markup inside intro and
+	 * question elements is copied directly into the corresponding strings.
+	 * The document structure is checked while reading; the DTD itself is
+	 * not used.
+	 */
+	public ExerciseSet loadExerciseSet(File file) throws PersistenceException {
+		ExerciseSet result = null;
+		InputStream in = null;
+		XMLStreamReader reader = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(file));
+			reader = createReader(in, null);
+			String hashA = readExerciseSetStart(reader);
+			result = readExerciseSetHeader(reader);
+			while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				reader.require(XMLStreamConstants.START_ELEMENT, null,
+						"exercise");
+				result.addExercise(readExercise(reader));
+			}
+			reader.require(XMLStreamConstants.END_ELEMENT, null,
+					"exercise-set");
+			checkIntegrity(result, hashA);
+		} catch (Exception e) {
+			PersistenceException pe = new PersistenceException(
+					"Loading exercise set " + file + " failed.", e);
+			throw pe;
+		} finally {
+			close(reader, in);
+		}
+		return result;
+	}
+
+	/**
+	 * Loads an exercise set from an XML file, optionally in lazy mode. In
+	 * lazy mode, the file is only scanned for the positions of the exercise
+	 * elements. Introduction, exercise attributes, and answers are read
+	 * immediately, questions and solutions on first access (see
+	 * {@link LazyExercise}). The file must not be modified while the
+	 * exercise set is in use.
+	 */
+	public ExerciseSet loadExerciseSet(File file, boolean lazy)
+			throws PersistenceException {
+		if (lazy) {
+			try {
+				ExerciseFileIndex index = ExerciseFileIndex.create(file,
+						getEncoding(file));
+				if (index != null && index.size() > 0)
+					return loadExerciseSet(index);
+			} catch (Exception e) {
+				PersistenceException pe = new PersistenceException(
+						"Loading exercise set " + file + " failed.", e);
+				throw pe;
+			}
+		}
+		return loadExerciseSet(file);
+	}
+
+	/** Creates an exercise set with lazy exercises from a file index. */
+	private ExerciseSet loadExerciseSet(ExerciseFileIndex index)
+			throws XMLStreamException, IOException {
+		XMLStreamReader reader = createReader(new ByteArrayInputStream(
+				index.getHeader()), index.getEncoding());
+		String hashA = readExerciseSetStart(reader);
+		ExerciseSet result = readExerciseSetHeader(reader);
+		reader.close();
+		// exercise start tags and answers are parsed as one document
+		ByteArrayOutputStream summary = new ByteArrayOutputStream();
+		summary.write("<exercises>".getBytes(index.getEncoding()));
+		for (int i = 0; i < index.size(); i++) {
+			summary.write(index.getStartTag(i));
+			if (index.getAnswer(i) != null)
+				summary.write(index.getAnswer(i));
+		}
+		summary.write("</exercises>".getBytes(index.getEncoding()));
+		reader = createReader(new ByteArrayInputStream(summary.toByteArray()),
+				index.getEncoding());
+		reader.nextTag();
+		LazyExercise.Loader loader = new IndexedExerciseLoader(index);
+		for (int i = 0; i < index.size(); i++) {
+			reader.nextTag();
+			reader.require(XMLStreamConstants.START_ELEMENT, null, "exercise");
+			String eID = getRequiredAttValue(reader, "id");
+			Exercise.Type type = getExerciseType(reader);
+			String eTheme = getAttValue(reader, "theme");
+			reader.nextTag();
+			String eAnsw = "";
+			if (index.getAnswer(i) != null) {
+				reader.nextTag();
+				reader.require(XMLStreamConstants.START_ELEMENT, null, "answer");
+				eAnsw = reader.getElementText();
+			}
+			result.addExercise(new LazyExercise(eID, type, eTheme, eAnsw,
+					loader, i));
+		}
+		reader.close();
+		checkIntegrity(result, hashA);
+		return result;
+	}
+
+	/**
+	 * Skips the prolog and returns the answers hash value stored in the root
+	 * element.
+	 */
+	private String readExerciseSetStart(XMLStreamReader reader)
+			throws XMLStreamException {
+		// skip prolog including document type declaration
+		while (reader.next() != XMLStreamConstants.START_ELEMENT)
+			;
+		reader.require(XMLStreamConstants.START_ELEMENT, null, "exercise-set");
+		return getAttValue(reader, "hasha");
+	}
+
+	/**
+	 * Creates an exercise set from the attributes of the root element and
+	 * the intro element which follows. Afterwards, the reader is positioned
+	 * at the end of the intro element.
+	 */
+	private ExerciseSet readExerciseSetHeader(XMLStreamReader reader)
+			throws XMLStreamException {
+		ExerciseSet result = new ExerciseSet(getAttValue(reader, "editor"),
+				getAttValue(reader, "lastEdit"), getAttValue(reader, "hashs"),
+				getAttValue(reader, "passwd"));
+		result.setData(getRequiredAttValue(reader, "course"),
+				getRequiredAttValue(reader, "lecturer"),
+				getRequiredAttValue(reader, "id"), getAttValue(reader, "db"));
+		reader.nextTag();
+		reader.require(XMLStreamConstants.START_ELEMENT, null, "intro");
+		result.setIntro(readMarkup(reader));
+		return result;
+	}
+
+	/**
+	 * Marks the exercise set as manipulated by replacing the editor name if
+	 * the answers do not match the stored hash value.
+	 */
+	private void checkIntegrity(ExerciseSet exSet, String hashA) {
+		if (exSet.containsAnswers() && !hashA.equals(computeHashValue(exSet)))
+			exSet.setEditor("??");
+	}
+
+	/** Returns the encoding of an XML file. */
+	private String getEncoding(File file) throws IOException,
+			XMLStreamException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		XMLStreamReader reader = null;
+		try {
+			reader = createReader(in, null);
+			return reader.getEncoding();
+		} finally {
+			close(reader, in);
+		}
+	}
+
+	/** Creates a streaming reader, the encoding may be null. */
+	private XMLStreamReader createReader(InputStream in, String encoding)
+			throws XMLStreamException {
+		synchronized (INPUT_FACTORY) {
+			if (encoding != null)
+				return INPUT_FACTORY.createXMLStreamReader(in, encoding);
+			else
+				return INPUT_FACTORY.createXMLStreamReader(in);
+		}
+	}
+
+	private void close(XMLStreamReader reader, InputStream in) {
+		try {
+			if (reader != null)
+				reader.close();
+			if (in != null)
+				in.close();
+		} catch (Exception e) {
+			// file has been read completely or is unusable anyway...
+		}
+	}
+
+	/**
+	 * Helper method for accessing attributes. If the specified attribute does
+	 * not exist, the empty string is returned.
+	 */
+	private String getAttValue(XMLStreamReader reader, String attName) {
+		String result = reader.getAttributeValue(null, attName);
+		return result != null ? result : "";
+	}
+
+	/** Returns the value of an attribute, which must be present. */
+	private String getRequiredAttValue(XMLStreamReader reader, String attName)
+			throws XMLStreamException {
+		String result = reader.getAttributeValue(null, attName);
+		if (result == null)
+			throw new XMLStreamException("Attribute " + attName
+					+ " missing in element " + reader.getLocalName() + ".",
+					reader.getLocation());
+		return result;
+	}
+
+	/**
+	 * Creates an <code>Exercise</code> instance using the data of the
+	 * exercise element at the current reader position. Afterwards, the reader
+	 * is positioned at the end of the exercise element.
+	 */
+	private Exercise readExercise(XMLStreamReader reader)
+			throws XMLStreamException {
+		String eID = getRequiredAttValue(reader, "id");
+		Exercise.Type type = getExerciseType(reader);
+		String eTheme = getAttValue(reader, "theme");
+		reader.nextTag();
+		reader.require(XMLStreamConstants.START_ELEMENT, null, "question");
+		String eQuest = readMarkup(reader);
+		String eAnsw = "";
+		String eSol = "";
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = reader.getLocalName();
+			if (name.equals("answer") && eAnsw.isEmpty() && eSol.isEmpty())
+				eAnsw = reader.getElementText();
+			else if (name.equals("solution") && eSol.isEmpty())
+				eSol = reader.getElementText();
+			else
+				throw new XMLStreamException("Unexpected element " + name
+						+ " in exercise " + eID + ".", reader.getLocation());
+		}
+		Exercise result = new Exercise(eID, type, eTheme, eQuest);
+		result.setAnswer(eAnsw);
+		result.setSolution(eSol);
+		return result;
+	}
+
+	/** Returns the type specified by the exercise element. */
+	private Exercise.Type getExerciseType(XMLStreamReader reader) {
+		if ("sql".equals(reader.getAttributeValue(null, "type")))
+			return Exercise.Type.SQL;
+		return Exercise.Type.OTHER;
+	}
+
+	/**
+	 * Returns the content of the element at the current reader position as
+	 * string with XML tags. Text is escaped as in serialized XML, empty
+	 * elements are written in short form. It is used to convert HTML
+	 * substructures into a String attribute value. Afterwards, the reader
+	 * is positioned at the end of the element.
+	 */
+	private String readMarkup(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder result = new StringBuilder();
+		int depth = 0;
+		boolean startTagOpen = false;
+		while (true) {
+			int event = reader.next();
+			if (startTagOpen && event != XMLStreamConstants.END_ELEMENT) {
+				result.append('>');
+				startTagOpen = false;
+			}
+			switch (event) {
+			case XMLStreamConstants.START_ELEMENT:
+				result.append('<').append(reader.getLocalName());
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					result.append(' ').append(reader.getAttributeLocalName(i))
+							.append("=\"");
+					appendEscaped(result, reader.getAttributeValue(i), true);
+					result.append('"');
+				}
+				startTagOpen = true;
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				if (depth == 0)
+					return result.toString();
+				if (startTagOpen)
+					result.append("/>");
+				else
+					result.append("</").append(reader.getLocalName())
+							.append('>');
+				startTagOpen = false;
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				appendEscaped(result, reader.getText(), false);
+				break;
+			case XMLStreamConstants.COMMENT:
+				result.append("<!--").append(reader.getText()).append("-->");
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				throw new XMLStreamException("Unexpected end of document.");
+			}
+		}
+	}
+
+	/** Appends text with XML special characters replaced by entities. */
+	private static void appendEscaped(StringBuilder sb, String text,
+			boolean inAttribute) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '"':
+				sb.append(inAttribute ? "&quot;" : "\"");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Writes an XML representation of a specified exercise set to a specified
+	 * file.
+	 * 
+	 * @throws PersistenceException
+	 */
+	public void saveExerciseSet(File file, ExerciseSet exercises)
+			throws PersistenceException {
+		saveExerciseSet(file, null, exercises, false);
+	}
+
+	/**
+	 * Writes an XML representation of a specified exercise set to a specified
+	 * file and optionally a HTML representation to a second file. The
+	 * document is built only once and is used for both outputs, so the XML
+	 * file is not read again.
+	 * 
+	 * @param xmlFile
+	 *            Destination file for the XML representation.
+	 * @param htmlFile
+	 *            Destination file for the HTML representation or null.
+	 * @param exercises
+	 *            The exercise set to be saved.
+	 * @param withSolutions
+	 *            Controls whether solutions are also printed out.
+	 * @throws PersistenceException
+	 */
+	public void saveExerciseSet(File xmlFile, File htmlFile,
+			ExerciseSet exercises, boolean withSolutions)
+			throws PersistenceException {
+		Document doc;
+		try {
+			doc = createDocument(exercises);
+			Transformer transformer = TransformerFactory.newInstance()
+					.newTransformer();
+			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM,
+					"exercise-set.dtd");
+			transformer.transform(new DOMSource(doc), new StreamResult(xmlFile));
+		} catch (Exception e) {
+			PersistenceException pe = new PersistenceException(
+					"Writing exercise set to file " + xmlFile + " failed.", e);
+			throw pe;
+		}
+		if (htmlFile != null)
+			transformToHTML(new DOMSource(doc), htmlFile, withSolutions);
+	}
+
+	/** Builds a DOM representation of the given exercise set. */
+	private Document createDocument(ExerciseSet exercises) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		// factory.setValidating(true);
+		// factory.setNamespaceAware(true);
+		DocumentBuilder builder = factory.newDocumentBuilder();
+		Document doc = builder.newDocument();
+		Element root = doc.createElement("exercise-set");
+		doc.appendChild(root);
+		root.setAttribute("course", exercises.getCourse());
+		root.setAttribute("db", exercises.getDB());
+		root.setAttribute("id", exercises.getID());
+		root.setAttribute("lecturer", exercises.getLecturer());
+		if (exercises.containsAnswers()) {
+			root.setAttribute("editor", exercises.getEditor());
+			root.setAttribute("lastEdit", exercises.getLastEdit());
+			root.setAttribute("hasha", computeHashValue(exercises));
+		}
+		if (!exercises.getPasswd().isEmpty())
+			root.setAttribute("hashs", exercises.getSolHash());
+		root.setAttribute("passwd", exercises.getPasswd());
+		List<String> fragments = new ArrayList<String>(exercises.size() + 1);
+		fragments.add("<intro>" + exercises.getIntro() + "</intro>");
+		for (int i = 0; i < exercises.size(); i++)
+			fragments.add("<question>" + exercises.getExercise(i).getQuestion()
+					+ "</question>");
+		List<Node> markup = importMarkup(builder, doc, fragments);
+		root.appendChild(markup.get(0));
+		for (int i = 0; i < exercises.size(); i++) {
+			Exercise exercise = exercises.getExercise(i);
+			Element exNode = doc.createElement("exercise");
+			root.appendChild(exNode);
+			exNode.setAttribute("id", exercise.getID());
+			if (!exercise.getTheme().isEmpty())
+				exNode.setAttribute("theme", exercise.getTheme());
+			if (exercise.getType() == Exercise.Type.SQL)
+				exNode.setAttribute("type", "sql");
+			exNode.appendChild(markup.get(i + 1));
+			Node newNode;
+			if (!exercise.getAnswer().isEmpty()) {
+				newNode = doc.createElement("answer");
+				newNode.setTextContent(exercise.getAnswer());
+				exNode.appendChild(newNode);
+			}
+			if (!exercise.getSolution().isEmpty()) {
+				newNode = doc.createElement("solution");
+				newNode.setTextContent(exercise.getSolution());
+				exNode.appendChild(newNode);
+			}
+		}
+		return doc;
+	}
+
+	/**
+	 * Parses the given markup fragments and imports them into the document.
+	 * To avoid a parser run per exercise, all fragments are parsed at once.
+	 * If the result does not reproduce the fragment structure, e.g. because
+	 * of unbalanced tags, the fragments are parsed one by one, so that errors
+	 * are reported for the fragment which caused them.
+	 */
+	private List<Node> importMarkup(DocumentBuilder builder, Document doc,
+			List<String> fragments) throws SAXException, IOException {
+		List<Node> result = new ArrayList<Node>(fragments.size());
+		StringBuilder all = new StringBuilder("<fragments>");
+		for (String fragment : fragments)
+			all.append(fragment);
+		all.append("</fragments>");
+		try {
+			Document tmpDoc = builder.parse(new InputSource(new StringReader(
+					all.toString())));
+			NodeList children = tmpDoc.getDocumentElement().getChildNodes();
+			if (children.getLength() == fragments.size()) {
+				for (int i = 0; i < fragments.size(); i++) {
+					Node child = children.item(i);
+					if (!fragments.get(i).startsWith
+							("<" + child.getNodeName() + ">"))
+						break;
+					result.add(doc.importNode(child, true));
+				}
+			}
+		} catch (SAXException e) {
+			// fragments are checked one by one below
+		}
+		if (result.size() != fragments.size()) {
+			result.clear();
+			for (String fragment : fragments) {
+				Document tmpDoc = builder.parse(new InputSource(
+						new StringReader(fragment)));
+				result.add(doc.importNode(tmpDoc.getFirstChild(), true));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes a hash value for editing information and answers. The result is
+	 * used to check the integrity of loaded exercise sets.
+	 */
+	static String computeHashValue(ExerciseSet exercises) {
+		String result = "";
+		try {
+			SecureHashService.Digest digest =
+				SecureHashService.getInstance().createDigest();
+			digest.update(exercises.getEditor());
+			digest.update(exercises.getLastEdit());
+			for (int i = 0; i < exercises.size(); i++)
+				digest.update(exercises.getExercise(i).getAnswer());
+			result = digest.getValue();
+		} catch (EncryptionException e) {
+			PersistenceException pe = new PersistenceException(
+					"Could not compute hash value.", e);
+			ErrorHandler.getInstance().handleError(pe);
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a HTML representation for a given XML file.
+	 * 
+	 * @param xmlFile
+	 *            Source file containing exercise set data.
+	 * @param htmlFile
+	 *            Destination file.
+	 * @param withSolutions
+	 *            Controls whether solutions are also printed out.
+	 * @throws PersistenceException
+	 */
+	public void transformExerciseSetToHTML(File xmlFile, File htmlFile,
+			boolean withSolutions) throws PersistenceException {
+		StreamSource src;
+		try {
+			src = new StreamSource(new FileInputStream(xmlFile));
+		} catch (FileNotFoundException e) {
+			PersistenceException pe = new PersistenceException(
+					"Generation of the HTML file " + htmlFile + " failed.", e);
+			throw pe;
+		}
+		src.setSystemId(DTD_PATH);
+		transformToHTML(src, htmlFile, withSolutions);
+	}
+
+	/** Applies the exercise set stylesheet to the given source. */
+	private void transformToHTML(Source src, File htmlFile,
+			boolean withSolutions) throws PersistenceException {
+		try {
+			String xsl = (withSolutions) ? "exercise-set-with-solutions.xsl"
+					: "exercise-set.xsl";
+			StreamResult result = new StreamResult(htmlFile);
+			Transformer t = getTemplates(new File(DTD_PATH, xsl))
+					.newTransformer();
+			t.transform(src, result);
+		} catch (Exception e) {
+			PersistenceException pe = new PersistenceException(
+					"Generation of the HTML file " + htmlFile + " failed.", e);
+			throw pe;
+		}
+	}
+
+	/**
+	 * Returns the compiled form of the given stylesheet. Stylesheets are
+	 * compiled only once and recompiled when the file has been modified.
+	 * The returned templates object is thread-safe.
+	 */
+	private static Templates getTemplates(File xslFile)
+			throws TransformerConfigurationException {
+		File key = xslFile.getAbsoluteFile();
+		long lastModified = key.lastModified();
+		synchronized (TEMPLATES) {
+			CachedTemplates cached = TEMPLATES.get(key);
+			if (cached == null || cached.lastModified != lastModified) {
+				TransformerFactory factory = TransformerFactory.newInstance();
+				cached = new CachedTemplates(factory.newTemplates(
+						new StreamSource(key)), lastModified);
+				TEMPLATES.put(key, cached);
+			}
+			return cached.templates;
+		}
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory result = XMLInputFactory.newInstance();
+		result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		result.setProperty(XMLInputFactory.IS_COALESCING, true);
+		result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		return result;
+	}
+
+	/**
+	 * Loads exercises of an indexed file on demand. The file is read at the
+	 * offsets recorded by the index and parsed like in eager mode.
+	 */
+	private class IndexedExerciseLoader implements LazyExercise.Loader {
+		private final ExerciseFileIndex index;
+
+		IndexedExerciseLoader(ExerciseFileIndex index) {
+			this.index = index;
+		}
+
+		@Override
+		public Exercise loadExercise(int exIdx) throws PersistenceException {
+			XMLStreamReader reader = null;
+			try {
+				reader = createReader(new ByteArrayInputStream(index
+						.readExercise(exIdx)), index.getEncoding());
+				reader.nextTag();
+				reader.require(XMLStreamConstants.START_ELEMENT, null,
+						"exercise");
+				return readExercise(reader);
+			} catch (XMLStreamException e) {
+				throw new PersistenceException("Could not parse exercise.", e);
+			} finally {
+				close(reader, null);
+			}
+		}
+	}
+
+	/** Compiled stylesheet together with the modification time of its file. */
+	private static class CachedTemplates {
+		final Templates templates;
+		final long lastModified;
+
+		CachedTemplates(Templates templates, long lastModified) {
+			this.templates = templates;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 * Helps the XML parser to find locally stored DTDs.
+	 * 
+	 * @author R. Lunde
+	 */
+	public class MyEntityResolver implements EntityResolver {
+		public InputSource resolveEntity(String publicId, String systemId)
+				throws FileNotFoundException {
+			if (systemId.contains(".dtd")) {
+				// System.out.println("publicId=" + publicId + " systemId=" +
+				// systemId);
+				File file = new File(DTD_PATH, systemId.substring(systemId
+						.lastIndexOf('/')));
+				return new InputSource(new FileInputStream(file));
+			} else {
+				// System.out.println("Other tag found");
+				return null;
+			}
+		}
+	}
+
+	// public static void main(String[] args) {
+	// try {
+	// ExerciseSetFileHandler el = new ExerciseSetFileHandler();
+	// ExerciseSet es = el.loadExerciseSet(new
+	// File("exercises/ExerciseSet1.xml"));
+	// System.out.print(es);
+	// } catch (ParserConfigurationException e) {
+	// e.printStackTrace();
+	// } catch (IOException e) {
+	// e.printStackTrace();
+	// } catch (SAXException e) {
+	// e.printStackTrace();
+	// } catch (Exception e) {
+	// e.printStackTrace();
+	// }
+	// }
+}
@@ -1,10 +1,10 @@
-
-/**
- * Provides persistence functionality for the SQL Trainer. The
- * {@link rl.sqltrainer.persistence.XMLFileHandler} strongly
- * depends on the domain object classes of the SQL Trainer. The other
- * classes of this package are quite general and can be used in other
- * projects, too.
- */
-package rl.sqltrainer.persistence;
-
+
+/**
+ * Provides persistence functionality for the SQL Trainer. The
+ * {@link rl.sqltrainer.persistence.XMLFileHandler} strongly
+ * depends on the domain object classes of the SQL Trainer. The other
+ * classes of this package are quite general and can be used in other
+ * projects, too.
+ */
+package rl.sqltrainer.persistence;
+
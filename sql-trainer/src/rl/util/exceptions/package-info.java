@@ -1,7 +1,7 @@
-/**
- * Contains useful classes for exception handling. The most important
- * class is the {@link rl.util.exceptions.ErrorHandler}. It is implemented as a
- * singleton and provides a unique access point for communicating warnings and
- * error messages to the user.
- */
+/**
+ * Contains useful classes for exception handling. The most important
+ * class is the {@link rl.util.exceptions.ErrorHandler}. It is implemented as a
+ * singleton and provides a unique access point for communicating warnings and
+ * error messages to the user.
+ */
 package rl.util.exceptions;
\ No newline at end of file
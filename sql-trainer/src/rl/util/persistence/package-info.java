@@ -1,4 +1,4 @@
-/**
- * Contains useful classes for implementing persistence functionality.
- */
+/**
+ * Contains useful classes for implementing persistence functionality.
+ */
 package rl.util.persistence;
\ No newline at end of file
@@ -1,40 +1,123 @@
-/*
- * Copyright (C) 2008-2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.util.security;
-
-import rl.util.exceptions.EncryptionException;
-
-/**
- * Singleton class, providing a unique access point for encryption and decryption
- * of strings. 
- * @author Ruediger Lunde
- *
- */
-public abstract class Encrypter {
-	/** Maintains the encrypter in use. */
-	private static Encrypter instance;
-	
-	/**
-	 * Uses reflection to look for a concrete implementation of the
-	 * encryption interface. If no suitable implementation is found, an
-	 * <code>EncryptionException</code> is thrown. In this prototypical
-	 * implementation, the name of the class to be used is hard-coded.
-	 */
-	public static Encrypter getInstance() throws EncryptionException {
-		if (instance == null) {
-			try {
-				Class<?> eclass = Class.forName("rl.util.security.DesEncrypter");
-				instance = (Encrypter) eclass.newInstance();
-			} catch (Exception e) {
-	    		throw new EncryptionException("Encrypter creation failed.", e);
-	    	}
-		}
-		return instance;
-	}
-	/** Abstract interface method, which has to be overridden by implementations. */
-	public abstract String encrypt(String str) throws EncryptionException;
-	/** Abstract interface method, which has to be overridden by implementations. */
-	public abstract String decrypt(String str) throws EncryptionException;
-}
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.util.security;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rl.util.exceptions.EncryptionException;
+
+/**
+ * Singleton class, providing a unique access point for encryption and decryption
+ * of strings. Implementations must be thread-safe.
+ * @author Ruediger Lunde
+ *
+ */
+public abstract class Encrypter {
+	/** Maintains the encrypter in use. */
+	private static Encrypter instance;
+	
+	/**
+	 * Uses reflection to look for a concrete implementation of the
+	 * encryption interface. If no suitable implementation is found, an
+	 * <code>EncryptionException</code> is thrown. In this prototypical
+	 * implementation, the name of the class to be used is hard-coded.
+	 */
+	public static synchronized Encrypter getInstance() throws EncryptionException {
+		if (instance == null) {
+			try {
+				Class<?> eclass = Class.forName("rl.util.security.DesEncrypter");
+				instance = (Encrypter) eclass.newInstance();
+			} catch (Exception e) {
+	    		throw new EncryptionException("Encrypter creation failed.", e);
+	    	}
+		}
+		return instance;
+	}
+	/** Abstract interface method, which has to be overridden by implementations. */
+	public abstract String encrypt(String str) throws EncryptionException;
+	/** Abstract interface method, which has to be overridden by implementations. */
+	public abstract String decrypt(String str) throws EncryptionException;
+
+	/**
+	 * Encrypts all given strings. The result list has the same order. Fails
+	 * completely if one string cannot be encrypted.
+	 */
+	public List<String> encrypt(List<String> strs) throws EncryptionException {
+		return transform(strs, true);
+	}
+
+	/**
+	 * Decrypts all given strings. The result list has the same order. Fails
+	 * completely if one string cannot be decrypted.
+	 */
+	public List<String> decrypt(List<String> strs) throws EncryptionException {
+		return transform(strs, false);
+	}
+
+	/**
+	 * Encrypts or decrypts the strings in parallel, using the common
+	 * fork-join pool. Short lists are handled by the calling thread.
+	 */
+	private List<String> transform(List<String> strs, boolean encrypt)
+			throws EncryptionException {
+		BulkTask task = new BulkTask(strs, new String[strs.size()], 0, strs
+				.size(), encrypt, new AtomicReference<EncryptionException>());
+		if (strs.size() <= BulkTask.THRESHOLD)
+			task.compute();
+		else
+			ForkJoinPool.commonPool().invoke(task);
+		if (task.failure.get() != null)
+			throw task.failure.get();
+		return Arrays.asList(task.result);
+	}
+
+	/**
+	 * Transforms a range of strings, splitting it as long as it is longer
+	 * than the threshold. The first failure is recorded and makes all tasks
+	 * stop.
+	 */
+	@SuppressWarnings("serial")
+	private class BulkTask extends RecursiveAction {
+		static final int THRESHOLD = 8;
+		final List<String> strs;
+		final String[] result;
+		final int from;
+		final int to;
+		final boolean encrypt;
+		final AtomicReference<EncryptionException> failure;
+
+		BulkTask(List<String> strs, String[] result, int from, int to,
+				boolean encrypt, AtomicReference<EncryptionException> failure) {
+			this.strs = strs;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+			this.encrypt = encrypt;
+			this.failure = failure;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BulkTask(strs, result, from, mid, encrypt,
+						failure), new BulkTask(strs, result, mid, to, encrypt,
+						failure));
+			} else {
+				try {
+					for (int i = from; i < to && failure.get() == null; i++)
+						result[i] = encrypt ? encrypt(strs.get(i))
+								: decrypt(strs.get(i));
+				} catch (EncryptionException e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+		}
+	}
+}
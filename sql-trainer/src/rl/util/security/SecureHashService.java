@@ -1,48 +1,88 @@
-/*
- * Copyright (C) 2008-2013 Ruediger Lunde
- * Licensed under the GNU General Public License, Version 3
- */
-package rl.util.security;
-
-import java.security.MessageDigest;
-
-import rl.util.exceptions.EncryptionException;
-import sun.misc.BASE64Encoder;
-
-/**
- * Singleton class, which supports hash value generation for given strings. It
- * is useful for checking passwords or the integrity for files.
- * 
- * @author Ruediger Lunde
- * 
- */
-public final class SecureHashService {
-	private static SecureHashService instance;
-
-	/** Uses lazy instantiation to provide a unique instance. */
-	public static SecureHashService getInstance() {
-		if (instance == null) {
-			instance = new SecureHashService();
-		}
-		return instance;
-	}
-
-	/** Default constructor - not accessible from outside! */
-	private SecureHashService() {
-	}
-
-	/** Uses MD5 to compute a hash value for the given text. */
-	public String encrypt(String plaintext) throws EncryptionException {
-		String hash;
-		try {
-			MessageDigest md = MessageDigest.getInstance("MD5"/* "SHA" */);
-			md.update(plaintext.getBytes("UTF-8"));
-
-			byte raw[] = md.digest();
-			hash = (new BASE64Encoder()).encode(raw);
-		} catch (Exception e) {
-			throw new EncryptionException("Hash code generation failed.", e);
-		}
-		return hash;
-	}
-}
+/*
+ * Copyright (C) 2008-2013 Ruediger Lunde
+ * Licensed under the GNU General Public License, Version 3
+ */
+package rl.util.security;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import rl.util.exceptions.EncryptionException;
+
+/**
+ * Singleton class, which supports hash value generation for given strings. It
+ * is useful for checking passwords or the integrity for files. Hash values
+ * of long text sequences can be computed incrementally by means of a
+ * {@link Digest}.
+ * 
+ * @author Ruediger Lunde
+ * 
+ */
+public final class SecureHashService {
+	private static SecureHashService instance;
+
+	/** Uses lazy instantiation to provide a unique instance. */
+	public static SecureHashService getInstance() {
+		if (instance == null) {
+			instance = new SecureHashService();
+		}
+		return instance;
+	}
+
+	/** Default constructor - not accessible from outside! */
+	private SecureHashService() {
+	}
+
+	/** Uses MD5 to compute a hash value for the given text. */
+	public String encrypt(String plaintext) throws EncryptionException {
+		String hash;
+		try {
+			Digest digest = createDigest();
+			digest.update(plaintext);
+			hash = digest.getValue();
+		} catch (Exception e) {
+			throw new EncryptionException("Hash code generation failed.", e);
+		}
+		return hash;
+	}
+
+	/**
+	 * Creates a digest, which accepts text incrementally. Its value equals
+	 * the hash value computed by {@link #encrypt(String)} for the
+	 * concatenation of all texts, but the concatenation is never built.
+	 */
+	public Digest createDigest() throws EncryptionException {
+		try {
+			return new Digest(MessageDigest.getInstance("MD5"/* "SHA" */));
+		} catch (NoSuchAlgorithmException e) {
+			throw new EncryptionException("Hash code generation failed.", e);
+		}
+	}
+
+	/**
+	 * Incremental hash value computation. Instances are not thread-safe.
+	 */
+	public static class Digest {
+		private static final Charset UTF8 = Charset.forName("UTF-8");
+		private final MessageDigest md;
+
+		private Digest(MessageDigest md) {
+			this.md = md;
+		}
+
+		/** Adds the UTF-8 representation of the given text. */
+		public void update(String text) {
+			md.update(text.getBytes(UTF8));
+		}
+
+		/**
+		 * Returns the hash value of all texts added so far and resets the
+		 * digest.
+		 */
+		public String getValue() {
+			return Base64.getEncoder().encodeToString(md.digest());
+		}
+	}
+}
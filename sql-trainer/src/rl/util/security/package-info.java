@@ -1,5 +1,5 @@
-
-/**
- * Contains useful classes for implementing security functionality.
- */
+
+/**
+ * Contains useful classes for implementing security functionality.
+ */
 package rl.util.security;
\ No newline at end of file